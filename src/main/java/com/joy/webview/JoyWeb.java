@@ -1,14 +1,29 @@
 package com.joy.webview;
 
 import android.content.Context;
+import android.os.SystemClock;
 import android.support.annotation.Nullable;
 
 import com.joy.ui.BaseApplication;
 import com.joy.utils.LogMgr;
 import com.joy.utils.TextUtil;
+import com.joy.webview.cache.MetadataCache;
+import com.joy.webview.cache.OfflinePackageManager;
+import com.joy.webview.cache.ResourceCache;
+import com.joy.webview.metrics.PageLoadMetrics;
+import com.joy.webview.metrics.ResourceTimingReport;
+import com.joy.webview.pool.WebViewPool;
+import com.joy.webview.pool.WebX5Pool;
+import com.joy.webview.utils.CookieSeeder;
 import com.tencent.smtt.sdk.CookieManager;
 import com.tencent.smtt.sdk.QbSdk;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
 import static android.os.Build.VERSION.SDK_INT;
 import static android.os.Build.VERSION_CODES.LOLLIPOP;
 
@@ -18,18 +33,63 @@ import static android.os.Build.VERSION_CODES.LOLLIPOP;
 
 public class JoyWeb {
 
+    public static final int COOKIE_SEED_BACKGROUND = 0;// 在后台请求种Cookie的URL，直接写入CookieManager
+    public static final int COOKIE_SEED_PAGE = 1;// WebView先加载一次种Cookie的页面
+
+    public static final int TIMEOUT_FIXED = 0;// 固定时长超时
+    public static final int TIMEOUT_ADAPTIVE = 1;// 有进展时顺延，停滞时超时
+    public static final int TIMEOUT_FIRST_VISIBLE = 2;// 只对首次显示内容计时
+
     private static String mUserAgent;
 
     private static String mCookieUrl;
     private static boolean mCookieSeeded;
+    private static int mCookieSeedMode;
+    private static long mCookieSeededAt;
+    private static long mCookieSeedTtl;
+    private static long mCookieSeedTimeout;
 
     private static boolean mAppCacheEnabled;
     private static String mAppCachePath;
     private static long mAppCacheMaxSize;
 
     private static long mTimeoutDuration;
+    private static int mTimeoutMode;
+    private static long mTimeoutIdleDuration;
+    private static long mTimeoutMaxDuration;
+    private static long mTimeoutBackgroundDuration;
+    private static int mRetryMaxAttempts;
+    private static long mRetryBaseDelay;
+    private static long mRetryMaxDelay;
+    private static PageLoadMetrics.Listener mPageLoadListener;
+    private static ResourceTimingReport.Listener mResourceTimingListener;
+    private static int mPagePreloadWindow;
+    private static int mPageDataWindowSize;
+    private static int mPageSnapshotCacheSize;
+
+    private static boolean mHtmlStreamEnabled;
+    private static int mHtmlStreamChunkSize;
+    private static int mHtmlParseThreadCount;
+    private static boolean mDocumentCaptureEager;
+    private static int mMetadataCacheSize;
+    private static long mMetadataCacheTtl;
+    private static int mHtmlParseQueueSize;
+
+    private static int mWebViewPoolSize;
+    private static int mWebX5PoolSize;
+    private static long mWebViewPoolIdleTimeout;
+    private static long mWebX5PoolIdleTimeout;
+
+    private static final List<String> mResourceCacheHosts = new ArrayList<>();
+    private static String mResourceCacheDir;
+    private static long mResourceCacheMaxSize;
+
+    private static String mOfflinePackageDir;
 
     static {
+        mCookieSeedMode = COOKIE_SEED_PAGE;
+        mCookieSeedTtl = 0;// 默认不过期
+        mCookieSeedTimeout = 3 * 1000;// 3s
         mAppCacheEnabled = true;
         try {
             mAppCachePath = BaseApplication.getContext().getExternalCacheDir().getPath();
@@ -38,17 +98,75 @@ public class JoyWeb {
         }
         mAppCacheMaxSize = 1024 * 1024 * 8;// 8M
         mTimeoutDuration = 15 * 1000;// 10s
+        mTimeoutMode = TIMEOUT_FIXED;
+        mTimeoutIdleDuration = 8 * 1000;// 8s
+        mTimeoutMaxDuration = 60 * 1000;// 60s
+        mTimeoutBackgroundDuration = 60 * 1000;// 60s
+        mRetryMaxAttempts = 0;// 默认不重试
+        mRetryBaseDelay = 1000;// 1s
+        mRetryMaxDelay = 8 * 1000;// 8s
+        mPagePreloadWindow = 1;
+        mPageDataWindowSize = 20;
+        mPageSnapshotCacheSize = 1024 * 1024 * 8;// 8M
+        mHtmlStreamEnabled = false;
+        mHtmlStreamChunkSize = 64 * 1024;// 64K chars
+        mHtmlParseThreadCount = 1;
+        mHtmlParseQueueSize = 4;
+        mDocumentCaptureEager = true;
+        mMetadataCacheSize = 32;
+        mMetadataCacheTtl = 10 * 60 * 1000;// 10min
+        mWebViewPoolSize = 0;// 默认不开启复用
+        mWebX5PoolSize = 0;
+        mWebViewPoolIdleTimeout = 5 * 60 * 1000;// 5min
+        mWebX5PoolIdleTimeout = 5 * 60 * 1000;// 5min
+        try {
+            mResourceCacheDir = new File(BaseApplication.getContext().getCacheDir(), "joyweb/resource").getPath();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        mResourceCacheMaxSize = 1024 * 1024 * 32;// 32M
+        try {
+            mOfflinePackageDir = new File(BaseApplication.getContext().getFilesDir(), "joyweb/offline").getPath();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
     }
 
     /**
      * 预加载腾讯X5内核，在Application的onCreate方法中调用。
      * 如果用到腾讯X5服务，必须调用此方法。
+     * 内核加载完成后会按{@link #setWebX5PoolSize(int)}预创建WebX5。
      *
      * @param appContext
      * @param callback
      */
     public static void initX5Environment(Context appContext, @Nullable QbSdk.PreInitCallback callback) {
-        QbSdk.initX5Environment(appContext, callback);
+        QbSdk.initX5Environment(appContext, new QbSdk.PreInitCallback() {
+            @Override
+            public void onCoreInitFinished() {
+                if (callback != null) {
+                    callback.onCoreInitFinished();
+                }
+            }
+
+            @Override
+            public void onViewInitFinished(boolean isX5Core) {
+                if (callback != null) {
+                    callback.onViewInitFinished(isX5Core);
+                }
+                WebX5Pool.prepare(appContext);// 内核加载完成后预创建WebX5
+            }
+        });
+    }
+
+    /**
+     * 在主线程空闲时预创建WebView并放入复用池，在Application的onCreate方法中调用。
+     * 需先通过{@link #setWebViewPoolSize(int)}开启复用池。
+     *
+     * @param appContext
+     */
+    public static void prepareWebViewPool(Context appContext) {
+        WebViewPool.prepare(appContext);
     }
 
     public static void setUserAgent(@Nullable String userAgent) {
@@ -60,10 +178,22 @@ public class JoyWeb {
         return mUserAgent;
     }
 
+    /**
+     * 后台种Cookie的模式下，设置后立即在后台请求该URL预先种Cookie，页面加载时只需等待结果。
+     *
+     * @param cookieUrl
+     */
     public static void setCookieUrl(@Nullable String cookieUrl) {
-        mCookieUrl = cookieUrl;
         if (TextUtil.isEmpty(cookieUrl)) {
             clearCookie();
+            return;
+        }
+        if (!cookieUrl.equals(mCookieUrl)) {
+            mCookieSeeded = false;
+        }
+        mCookieUrl = cookieUrl;
+        if (mCookieSeedMode == COOKIE_SEED_BACKGROUND && !isCookieSeeded()) {
+            CookieSeeder.preseed(cookieUrl);
         }
     }
 
@@ -75,15 +205,62 @@ public class JoyWeb {
     public static void clearCookie() {
         mCookieUrl = null;
         mCookieSeeded = false;
+        CookieSeeder.cancelRefresh();
         removeAllCookies();
     }
 
+    /**
+     * @return 已种过Cookie且未超过{@link #setCookieSeedTtl(long)}设置的有效期
+     */
     public static boolean isCookieSeeded() {
-        return mCookieSeeded;
+        return mCookieSeeded && (mCookieSeedTtl <= 0 || SystemClock.elapsedRealtime() - mCookieSeededAt < mCookieSeedTtl);
     }
 
     public static void setCookieSeeded(boolean cookieSeeded) {
         mCookieSeeded = cookieSeeded;
+        mCookieSeededAt = SystemClock.elapsedRealtime();
+    }
+
+    /**
+     * 后台种Cookie的有效期，到期前会自动重新请求，0表示不过期。
+     *
+     * @param ttl
+     */
+    public static void setCookieSeedTtl(long ttl) {
+        mCookieSeedTtl = ttl;
+    }
+
+    public static long getCookieSeedTtl() {
+        return mCookieSeedTtl;
+    }
+
+    /**
+     * 页面加载前等待后台种Cookie的最长时间，超时后不再等待，直接加载页面。
+     *
+     * @param timeout
+     */
+    public static void setCookieSeedTimeout(long timeout) {
+        mCookieSeedTimeout = timeout;
+    }
+
+    public static long getCookieSeedTimeout() {
+        return mCookieSeedTimeout;
+    }
+
+    /**
+     * 切换到后台模式时，如果已设置了种Cookie的URL，立即在后台预先种Cookie。
+     *
+     * @param mode {@link #COOKIE_SEED_PAGE}（默认）或{@link #COOKIE_SEED_BACKGROUND}
+     */
+    public static void setCookieSeedMode(int mode) {
+        mCookieSeedMode = mode;
+        if (mode == COOKIE_SEED_BACKGROUND && !TextUtil.isEmpty(mCookieUrl) && !isCookieSeeded()) {
+            CookieSeeder.preseed(mCookieUrl);
+        }
+    }
+
+    public static int getCookieSeedMode() {
+        return mCookieSeedMode;
     }
 
     private static void removeAllCookies() {
@@ -137,4 +314,366 @@ public class JoyWeb {
     public static long getTimeoutDuration() {
         return mTimeoutDuration;
     }
+
+    /**
+     * @param mode {@link #TIMEOUT_FIXED}（默认）、{@link #TIMEOUT_ADAPTIVE}或{@link #TIMEOUT_FIRST_VISIBLE}
+     */
+    public static void setTimeoutMode(int mode) {
+        mTimeoutMode = mode;
+    }
+
+    public static int getTimeoutMode() {
+        return mTimeoutMode;
+    }
+
+    /**
+     * {@link #TIMEOUT_ADAPTIVE}模式下，加载进度和资源加载停滞超过该时长即超时。
+     *
+     * @param duration
+     */
+    public static void setTimeoutIdleDuration(long duration) {
+        mTimeoutIdleDuration = duration;
+    }
+
+    public static long getTimeoutIdleDuration() {
+        return mTimeoutIdleDuration;
+    }
+
+    /**
+     * {@link #TIMEOUT_ADAPTIVE}模式下，无论是否有进展，加载总时长的上限。
+     *
+     * @param duration
+     */
+    public static void setTimeoutMaxDuration(long duration) {
+        mTimeoutMaxDuration = duration;
+    }
+
+    public static long getTimeoutMaxDuration() {
+        return mTimeoutMaxDuration;
+    }
+
+    /**
+     * {@link #TIMEOUT_FIRST_VISIBLE}模式下，内容显示后等待页面加载完成的时长，超过后只停止加载，不显示错误页。
+     *
+     * @param duration
+     */
+    public static void setTimeoutBackgroundDuration(long duration) {
+        mTimeoutBackgroundDuration = duration;
+    }
+
+    public static long getTimeoutBackgroundDuration() {
+        return mTimeoutBackgroundDuration;
+    }
+
+    /**
+     * 通过load发起的页面因网络错误或超时加载失败时，显示错误页之前自动重试的次数，默认为0（不重试）。
+     * 超时也会重试，开启后显示错误页前的最长等待时间约为(次数 + 1)倍的超时时长加上各次的重试间隔。
+     *
+     * @param attempts
+     */
+    public static void setRetryMaxAttempts(int attempts) {
+        mRetryMaxAttempts = attempts;
+    }
+
+    public static int getRetryMaxAttempts() {
+        return mRetryMaxAttempts;
+    }
+
+    /**
+     * 第一次重试前等待的时长，之后每次翻倍。
+     *
+     * @param delay
+     */
+    public static void setRetryBaseDelay(long delay) {
+        mRetryBaseDelay = delay;
+    }
+
+    public static long getRetryBaseDelay() {
+        return mRetryBaseDelay;
+    }
+
+    public static void setRetryMaxDelay(long delay) {
+        mRetryMaxDelay = delay;
+    }
+
+    public static long getRetryMaxDelay() {
+        return mRetryMaxDelay;
+    }
+
+    /**
+     * 每次导航结束时回调加载耗时，可用于统计线上的慢页面。
+     *
+     * @param listener 为null时不再统计
+     */
+    public static void setPageLoadListener(@Nullable PageLoadMetrics.Listener listener) {
+        mPageLoadListener = listener;
+    }
+
+    @Nullable
+    public static PageLoadMetrics.Listener getPageLoadListener() {
+        return mPageLoadListener;
+    }
+
+    /**
+     * 设置后，页面加载完成时读取Navigation Timing和Resource Timing，按域名汇总后回调，用于定位慢的CDN和资源。
+     * 需要在创建WebView之前设置。
+     *
+     * @param listener 为null时不再收集
+     */
+    public static void setResourceTimingListener(@Nullable ResourceTimingReport.Listener listener) {
+        mResourceTimingListener = listener;
+    }
+
+    @Nullable
+    public static ResourceTimingReport.Listener getResourceTimingListener() {
+        return mResourceTimingListener;
+    }
+
+    /**
+     * 纵向翻页（BasePageWebViewActivity/BasePageWebX5Activity）时，当前页加载完成后在后台预加载前后各window页，0为不预加载。
+     *
+     * @param window
+     */
+    public static void setPagePreloadWindow(int window) {
+        mPagePreloadWindow = Math.max(window, 0);
+    }
+
+    public static int getPagePreloadWindow() {
+        return mPagePreloadWindow;
+    }
+
+    /**
+     * 纵向翻页时每次从{@link com.joy.webview.ui.PageDataSource}加载的实体数量。
+     *
+     * @param size
+     */
+    public static void setPageDataWindowSize(int size) {
+        mPageDataWindowSize = Math.max(size, 1);
+    }
+
+    public static int getPageDataWindowSize() {
+        return mPageDataWindowSize;
+    }
+
+    /**
+     * 纵向翻页时移出ViewPager的页面截图占用内存的上限，每个翻页Activity各自计算，0为不截图。
+     *
+     * @param size 字节数
+     */
+    public static void setPageSnapshotCacheSize(int size) {
+        mPageSnapshotCacheSize = Math.max(size, 0);
+    }
+
+    public static int getPageSnapshotCacheSize() {
+        return mPageSnapshotCacheSize;
+    }
+
+    /**
+     * @param size 复用池中空闲WebView的最大数量，0表示不复用。
+     */
+    public static void setWebViewPoolSize(int size) {
+        mWebViewPoolSize = Math.max(size, 0);
+    }
+
+    public static int getWebViewPoolSize() {
+        return mWebViewPoolSize;
+    }
+
+    /**
+     * @param size X5复用池中空闲WebX5的最大数量，0表示不复用。
+     */
+    public static void setWebX5PoolSize(int size) {
+        mWebX5PoolSize = Math.max(size, 0);
+    }
+
+    public static int getWebX5PoolSize() {
+        return mWebX5PoolSize;
+    }
+
+    /**
+     * @param timeout 空闲WebView在复用池中的最长存活时间，超时后销毁。
+     */
+    public static void setWebViewPoolIdleTimeout(long timeout) {
+        mWebViewPoolIdleTimeout = timeout;
+    }
+
+    public static long getWebViewPoolIdleTimeout() {
+        return mWebViewPoolIdleTimeout;
+    }
+
+    /**
+     * @param timeout 空闲WebX5在复用池中的最长存活时间，超时后销毁。
+     */
+    public static void setWebX5PoolIdleTimeout(long timeout) {
+        mWebX5PoolIdleTimeout = timeout;
+    }
+
+    public static long getWebX5PoolIdleTimeout() {
+        return mWebX5PoolIdleTimeout;
+    }
+
+    /**
+     * 开启后页面加载完成时HTML以分块的形式推送给客户端，并在后台线程解析。
+     *
+     * @param enabled
+     */
+    public static void setHtmlStreamEnabled(boolean enabled) {
+        mHtmlStreamEnabled = enabled;
+    }
+
+    public static boolean isHtmlStreamEnabled() {
+        return mHtmlStreamEnabled;
+    }
+
+    public static void setHtmlStreamChunkSize(int chunkSize) {
+        mHtmlStreamChunkSize = Math.max(chunkSize, 1024);
+    }
+
+    public static int getHtmlStreamChunkSize() {
+        return mHtmlStreamChunkSize;
+    }
+
+    /**
+     * 解析HTML的后台线程数，需在首次加载页面之前设置。
+     *
+     * @param threadCount
+     */
+    public static void setHtmlParseThreadCount(int threadCount) {
+        mHtmlParseThreadCount = Math.max(threadCount, 1);
+    }
+
+    public static int getHtmlParseThreadCount() {
+        return mHtmlParseThreadCount;
+    }
+
+    /**
+     * 等待解析的任务队列长度，队列满时丢弃最早等待的任务，需在首次加载页面之前设置。
+     *
+     * @param queueSize
+     */
+    public static void setHtmlParseQueueSize(int queueSize) {
+        mHtmlParseQueueSize = Math.max(queueSize, 1);
+    }
+
+    public static int getHtmlParseQueueSize() {
+        return mHtmlParseQueueSize;
+    }
+
+    /**
+     * 默认为true：每次加载完成都获取并解析整页HTML，onPageFinished在解析完成后回调，此时getTag等同步方法可以直接取到结果。
+     * 设置为false时页面加载完成后不主动获取HTML，首次访问时才获取，获取完成前同步方法返回null，需改用getDocument(DocumentCallback)。
+     *
+     * @param eager
+     */
+    public static void setDocumentCaptureEager(boolean eager) {
+        mDocumentCaptureEager = eager;
+    }
+
+    public static boolean isDocumentCaptureEager() {
+        return mDocumentCaptureEager;
+    }
+
+    /**
+     * @param size 按URL缓存元数据的页面数量，0表示不缓存。
+     */
+    public static void setMetadataCacheSize(int size) {
+        mMetadataCacheSize = Math.max(size, 0);
+        if (size <= 0) {
+            MetadataCache.clear();
+        }
+    }
+
+    public static int getMetadataCacheSize() {
+        return mMetadataCacheSize;
+    }
+
+    public static void setMetadataCacheTtl(long ttl) {
+        mMetadataCacheTtl = ttl;
+    }
+
+    public static long getMetadataCacheTtl() {
+        return mMetadataCacheTtl;
+    }
+
+    /**
+     * 设置允许缓存静态资源（JS/CSS/图片/字体）的域名，支持"*.example.com"匹配子域名，不设置时不缓存。
+     * 缓存的资源在shouldInterceptRequest中返回，不再依赖WebView自身的缓存。
+     *
+     * @param hosts
+     */
+    public static void setResourceCacheHosts(String... hosts) {
+        synchronized (mResourceCacheHosts) {
+            mResourceCacheHosts.clear();
+            if (hosts != null) {
+                for (String host : hosts) {
+                    if (TextUtil.isNotEmpty(host)) {
+                        mResourceCacheHosts.add(host.trim().toLowerCase(Locale.US));
+                    }
+                }
+            }
+        }
+    }
+
+    public static List<String> getResourceCacheHosts() {
+        synchronized (mResourceCacheHosts) {
+            return mResourceCacheHosts.isEmpty() ? Collections.emptyList() : new ArrayList<>(mResourceCacheHosts);
+        }
+    }
+
+    /**
+     * 需在首次加载页面之前设置。
+     *
+     * @param dir
+     */
+    public static void setResourceCacheDir(String dir) {
+        mResourceCacheDir = dir;
+    }
+
+    public static String getResourceCacheDir() {
+        return mResourceCacheDir;
+    }
+
+    public static void setResourceCacheMaxSize(long maxSize) {
+        mResourceCacheMaxSize = maxSize;
+    }
+
+    public static long getResourceCacheMaxSize() {
+        return mResourceCacheMaxSize;
+    }
+
+    public static void clearResourceCache() {
+        new Thread(ResourceCache::clear, "core-web-cache-clear").start();
+    }
+
+    /**
+     * 注册打包在assets中的离线包，命中映射的URL直接从assets返回。
+     *
+     * @param assetDir assets中离线包的目录，目录下需包含manifest.json
+     */
+    public static void registerOfflinePackage(String assetDir) {
+        OfflinePackageManager.register(assetDir);
+    }
+
+    /**
+     * 安装下载的离线包zip，版本号高于当前版本时替换同名的离线包。
+     *
+     * @param zip
+     * @param callback 可以为null
+     */
+    public static void installOfflinePackage(File zip, @Nullable OfflinePackageManager.InstallCallback callback) {
+        OfflinePackageManager.install(zip, callback);
+    }
+
+    /**
+     * 已安装的离线包的存放目录，需在首次加载页面之前设置。
+     *
+     * @param dir
+     */
+    public static void setOfflinePackageDir(String dir) {
+        mOfflinePackageDir = dir;
+    }
+
+    public static String getOfflinePackageDir() {
+        return mOfflinePackageDir;
+    }
 }
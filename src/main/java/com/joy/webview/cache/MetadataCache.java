@@ -0,0 +1,86 @@
+package com.joy.webview.cache;
+
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.joy.utils.TextUtil;
+import com.joy.webview.JoyWeb;
+import com.joy.webview.utils.ExtractionResult;
+import com.joy.webview.utils.UriUtils;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 按URL缓存页面的元数据（getTag/getAttribute/getSelection的结果），在当前进程内跨页面复用。
+ * LRU淘汰，数量上限和有效期由{@link JoyWeb}配置。只在主线程中读写。
+ */
+
+public class MetadataCache {
+
+    private static final LinkedHashMap<String, Entry> sEntries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * @return 未缓存或已过期时返回null
+     */
+    @Nullable
+    public static ExtractionResult get(String url) {
+        if (TextUtil.isEmpty(url) || JoyWeb.getMetadataCacheSize() <= 0) {
+            return null;
+        }
+        String key = UriUtils.normalize(url);
+        Entry entry = sEntries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (SystemClock.elapsedRealtime() - entry.createdAt > JoyWeb.getMetadataCacheTtl()) {
+            sEntries.remove(key);
+            return null;
+        }
+        return entry.result;
+    }
+
+    /**
+     * @return 已缓存的元数据，不存在时新建一个用于写入；未开启缓存时返回一个不会被缓存的对象
+     */
+    @NonNull
+    public static ExtractionResult obtain(String url) {
+        ExtractionResult result = get(url);
+        if (result == null) {
+            result = new ExtractionResult();
+            if (TextUtil.isNotEmpty(url) && JoyWeb.getMetadataCacheSize() > 0) {
+                sEntries.put(UriUtils.normalize(url), new Entry(result));
+                trimToSize(JoyWeb.getMetadataCacheSize());
+            }
+        }
+        return result;
+    }
+
+    public static void put(String url, ExtractionResult result) {
+        obtain(url).putAll(result);
+    }
+
+    public static void clear() {
+        sEntries.clear();
+    }
+
+    private static void trimToSize(int maxSize) {
+        Iterator<Map.Entry<String, Entry>> iterator = sEntries.entrySet().iterator();
+        while (sEntries.size() > maxSize && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    private static class Entry {
+        final ExtractionResult result;
+        final long createdAt;
+
+        Entry(ExtractionResult result) {
+            this.result = result;
+            this.createdAt = SystemClock.elapsedRealtime();
+        }
+    }
+}
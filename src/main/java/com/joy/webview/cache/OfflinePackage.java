@@ -0,0 +1,160 @@
+package com.joy.webview.cache;
+
+import android.content.res.AssetManager;
+import android.net.Uri;
+import android.support.annotation.Nullable;
+
+import com.joy.utils.TextUtil;
+import com.joy.webview.utils.UriUtils;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 一个离线包：manifest.json声明包名、版本号和URL前缀到包内路径的映射，包内容位于assets目录或解压后的目录中。
+ * <pre>
+ * {
+ *   "name": "main",
+ *   "version": 3,
+ *   "mappings": [
+ *     {"prefix": "https://h5.example.com/app/", "path": "app/"}
+ *   ]
+ * }
+ * </pre>
+ * 创建后不可变，可以在多个线程中同时使用。
+ */
+
+public class OfflinePackage {
+
+    static final String MANIFEST = "manifest.json";
+    private static final String INDEX = "index.html";
+
+    private final String mName;
+    private final int mVersion;
+    private final List<Mapping> mMappings;
+    @Nullable
+    private final AssetManager mAssets;
+    private final String mBasePath;
+
+    private OfflinePackage(String name, int version, List<Mapping> mappings, @Nullable AssetManager assets, String basePath) {
+        mName = name;
+        mVersion = version;
+        mMappings = mappings;
+        mAssets = assets;
+        mBasePath = basePath;
+    }
+
+    static OfflinePackage fromAssets(AssetManager assets, String assetDir) throws IOException, JSONException {
+        String basePath = assetDir.endsWith("/") ? assetDir : assetDir + "/";
+        return parse(read(assets.open(basePath + MANIFEST)), assets, basePath);
+    }
+
+    static OfflinePackage fromDirectory(File directory) throws IOException, JSONException {
+        return parse(read(new FileInputStream(new File(directory, MANIFEST))), null, directory.getPath() + "/");
+    }
+
+    private static OfflinePackage parse(String json, @Nullable AssetManager assets, String basePath) throws JSONException {
+        JSONObject manifest = new JSONObject(json);
+        String name = manifest.getString("name");
+        int version = manifest.getInt("version");
+        JSONArray array = manifest.getJSONArray("mappings");
+        List<Mapping> mappings = new ArrayList<>(array.length());
+        for (int i = 0; i < array.length(); i++) {
+            JSONObject object = array.getJSONObject(i);
+            String prefix = UriUtils.normalize(object.getString("prefix"));
+            String path = object.optString("path", "");
+            if (path.length() > 0 && !path.endsWith("/")) {
+                path += "/";
+            }
+            mappings.add(new Mapping(prefix, path));
+        }
+        // 前缀长的优先匹配
+        Collections.sort(mappings, (m1, m2) -> m2.prefix.length() - m1.prefix.length());
+        return new OfflinePackage(name, version, mappings, assets, basePath);
+    }
+
+    public String getName() {
+        return mName;
+    }
+
+    public int getVersion() {
+        return mVersion;
+    }
+
+    /**
+     * @return 解压后的目录，内置在assets中时返回null
+     */
+    @Nullable
+    File getDirectory() {
+        return mAssets != null ? null : new File(mBasePath);
+    }
+
+    /**
+     * @param url 已经过{@link UriUtils#normalize}处理的URL
+     * @return 包内对应的文件，不在映射范围内或包内不存在时返回null
+     */
+    @Nullable
+    InputStream open(String url) {
+        for (Mapping mapping : mMappings) {
+            if (!url.startsWith(mapping.prefix)) {
+                continue;
+            }
+            String relative = Uri.parse(url).getPath();
+            String prefixPath = Uri.parse(mapping.prefix).getPath();
+            if (relative == null) {
+                return null;
+            }
+            relative = relative.substring(Math.min(prefixPath == null ? 0 : prefixPath.length(), relative.length()));
+            if (relative.startsWith("/")) {
+                relative = relative.substring(1);
+            }
+            if (TextUtil.isEmpty(relative) || relative.endsWith("/")) {
+                relative += INDEX;
+            }
+            if (relative.contains("..")) {
+                return null;
+            }
+            try {
+                String path = mBasePath + mapping.path + relative;
+                return mAssets != null ? mAssets.open(path) : new FileInputStream(path);
+            } catch (IOException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private static String read(InputStream in) throws IOException {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4 * 1024];
+            int count;
+            while ((count = in.read(buffer)) != -1) {
+                out.write(buffer, 0, count);
+            }
+            return out.toString("UTF-8");
+        } finally {
+            in.close();
+        }
+    }
+
+    private static class Mapping {
+        final String prefix;
+        final String path;
+
+        Mapping(String prefix, String path) {
+            this.prefix = prefix;
+            this.path = path;
+        }
+    }
+}
@@ -0,0 +1,373 @@
+package com.joy.webview.cache;
+
+import android.content.res.AssetManager;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.MainThread;
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+import android.webkit.MimeTypeMap;
+
+import com.joy.ui.BaseApplication;
+import com.joy.utils.LogMgr;
+import com.joy.utils.TextUtil;
+import com.joy.webview.JoyWeb;
+import com.joy.webview.utils.UriUtils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * 离线包管理：URL命中离线包的映射时，直接从assets或解压后的目录返回内容，不再请求网络。
+ * 内置的离线包通过{@link JoyWeb#registerOfflinePackage}注册，下载的zip通过{@link JoyWeb#installOfflinePackage}安装。
+ * 同名离线包只使用版本号最高的一个。安装时先解压到临时目录，校验通过后重命名为正式目录，再整体替换当前使用的离线包。
+ * 页面通过{@link #acquire()}持有一份快照，页面内始终读同一个版本，不会读到新旧混合的内容；
+ * 被替换的旧版本目录等到没有页面持有时才删除。
+ */
+
+public class OfflinePackageManager {
+
+    private static final String SUFFIX_TEMP = ".tmp";
+
+    private static final List<String> sAssetDirs = new ArrayList<>();
+    // key: 包名，每次变更都整体替换
+    private static final AtomicReference<Map<String, OfflinePackage>> sPackages = new AtomicReference<>();
+    private static final Handler sMainHandler = new Handler(Looper.getMainLooper());
+    // 以下两个字段由OfflinePackageManager.class保护。key: 版本目录
+    private static final Map<File, Integer> sHolders = new HashMap<>();
+    private static final Set<File> sObsolete = new HashSet<>();
+
+    /**
+     * @param assetDir assets中离线包的目录，目录下需包含manifest.json
+     */
+    public static synchronized void register(String assetDir) {
+        sAssetDirs.add(assetDir);
+        sPackages.set(null);// 下次使用时重新加载
+    }
+
+    /**
+     * @return 命中离线包时返回资源，否则返回null
+     */
+    @Nullable
+    @WorkerThread
+    public static ResourceCache.Resource resolve(String url) {
+        return resolve(getPackages(), url);
+    }
+
+    /**
+     * 持有当前的离线包，用完后必须调用{@link Holder#release()}，之前被替换的版本目录才会删除。
+     */
+    @WorkerThread
+    public static synchronized Holder acquire() {
+        Map<String, OfflinePackage> packages = getPackages();
+        for (OfflinePackage pkg : packages.values()) {
+            File directory = pkg.getDirectory();
+            if (directory != null) {
+                Integer count = sHolders.get(directory);
+                sHolders.put(directory, count == null ? 1 : count + 1);
+            }
+        }
+        return new Holder(packages);
+    }
+
+    private static synchronized void release(Map<String, OfflinePackage> packages) {
+        for (OfflinePackage pkg : packages.values()) {
+            File directory = pkg.getDirectory();
+            Integer count = directory == null ? null : sHolders.get(directory);
+            if (count == null) {
+                continue;
+            }
+            if (count > 1) {
+                sHolders.put(directory, count - 1);
+            } else {
+                sHolders.remove(directory);
+                if (sObsolete.remove(directory)) {
+                    delete(directory);
+                }
+            }
+        }
+    }
+
+    /**
+     * 已被替换的版本目录，没有页面持有时立即删除，否则等到最后一个持有者释放。
+     */
+    private static synchronized void markObsolete(File directory) {
+        if (sHolders.containsKey(directory)) {
+            sObsolete.add(directory);
+        } else {
+            delete(directory);
+        }
+    }
+
+    @Nullable
+    private static ResourceCache.Resource resolve(Map<String, OfflinePackage> packages, String url) {
+        if (packages.isEmpty() || !url.startsWith("http")) {
+            return null;
+        }
+        String normalized = UriUtils.normalize(url);
+        for (OfflinePackage pkg : packages.values()) {
+            InputStream data = pkg.open(normalized);
+            if (data != null) {
+                if (LogMgr.DEBUG) {
+                    LogMgr.d("core-web", "OfflinePackageManager resolve # " + pkg.getName() + "@" + pkg.getVersion() + " url: " + url);
+                }
+                String mimeType = getMimeType(url);
+                boolean text = mimeType.startsWith("text/") || mimeType.endsWith("javascript");
+                return new ResourceCache.Resource(mimeType, text ? "UTF-8" : null, data);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return 当前使用的离线包版本，不存在时返回-1
+     */
+    @WorkerThread
+    public static int getVersion(String name) {
+        OfflinePackage pkg = getPackages().get(name);
+        return pkg == null ? -1 : pkg.getVersion();
+    }
+
+    /**
+     * 在后台线程解压并安装离线包，版本号不高于当前版本时放弃安装。
+     *
+     * @param zip
+     * @param callback 在主线程回调，可以为null
+     */
+    public static void install(File zip, @Nullable InstallCallback callback) {
+        new Thread(() -> {
+            OfflinePackage pkg = null;
+            try {
+                pkg = installSync(zip);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+            if (callback != null) {
+                OfflinePackage installed = pkg;
+                sMainHandler.post(() -> callback.onInstalled(installed));
+            }
+        }, "core-web-offline-install").start();
+    }
+
+    @Nullable
+    @WorkerThread
+    private static OfflinePackage installSync(File zip) throws Exception {
+        File root = getRootDirectory();
+        File temp = new File(root, System.currentTimeMillis() + SUFFIX_TEMP);
+        try {
+            unzip(zip, temp);
+            OfflinePackage pkg = OfflinePackage.fromDirectory(temp);
+            synchronized (OfflinePackageManager.class) {// 检查版本和替换在同一个锁内，并发安装时不会用旧版本覆盖新版本
+                OfflinePackage current = getPackages().get(pkg.getName());
+                if (current != null && pkg.getVersion() <= current.getVersion()) {
+                    if (LogMgr.DEBUG) {
+                        LogMgr.d("core-web", "OfflinePackageManager install # skip " + pkg.getName() + "@" + pkg.getVersion());
+                    }
+                    return null;
+                }
+                File target = new File(new File(root, pkg.getName()), String.valueOf(pkg.getVersion()));
+                delete(target);
+                target.getParentFile().mkdirs();
+                if (!temp.renameTo(target)) {
+                    throw new IOException("rename failed: " + target);
+                }
+                pkg = OfflinePackage.fromDirectory(target);
+                Map<String, OfflinePackage> packages = new HashMap<>(getPackages());
+                packages.put(pkg.getName(), pkg);
+                sPackages.set(Collections.unmodifiableMap(packages));
+                File previous = current == null ? null : current.getDirectory();
+                if (previous != null) {
+                    markObsolete(previous);// 仍在被页面使用时等到释放后再删除
+                }
+                return pkg;
+            }
+        } finally {
+            delete(temp);
+        }
+    }
+
+    private static Map<String, OfflinePackage> getPackages() {
+        Map<String, OfflinePackage> packages = sPackages.get();
+        if (packages == null) {
+            synchronized (OfflinePackageManager.class) {
+                packages = sPackages.get();
+                if (packages == null) {
+                    packages = loadPackages();
+                    sPackages.set(packages);
+                }
+            }
+        }
+        return packages;
+    }
+
+    /**
+     * 加载内置的离线包和已安装的离线包，同名时取版本号高的。
+     */
+    private static Map<String, OfflinePackage> loadPackages() {
+        Map<String, OfflinePackage> packages = new HashMap<>();
+        AssetManager assets = BaseApplication.getContext().getAssets();
+        for (String assetDir : sAssetDirs) {
+            try {
+                putIfNewer(packages, OfflinePackage.fromAssets(assets, assetDir));
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+        File root = getRootDirectory();
+        File[] names = root.listFiles();
+        if (names != null) {
+            for (File name : names) {
+                if (name.getName().endsWith(SUFFIX_TEMP)) {
+                    delete(name);// 上次未完成的安装
+                    continue;
+                }
+                File[] versions = name.listFiles();
+                if (versions == null) {
+                    continue;
+                }
+                File latest = null;
+                for (File version : versions) {
+                    try {
+                        OfflinePackage pkg = OfflinePackage.fromDirectory(version);
+                        if (putIfNewer(packages, pkg)) {
+                            latest = version;
+                        }
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                    }
+                }
+                for (File version : versions) {
+                    if (!version.equals(latest)) {
+                        markObsolete(version);// 已被替换的旧版本，register()后重新加载时可能仍在被页面使用
+                    }
+                }
+            }
+        }
+        return Collections.unmodifiableMap(packages);
+    }
+
+    private static boolean putIfNewer(Map<String, OfflinePackage> packages, OfflinePackage pkg) {
+        OfflinePackage current = packages.get(pkg.getName());
+        if (current == null || current.getVersion() < pkg.getVersion()) {
+            packages.put(pkg.getName(), pkg);
+            return true;
+        }
+        return false;
+    }
+
+    private static File getRootDirectory() {
+        File root = new File(JoyWeb.getOfflinePackageDir());
+        root.mkdirs();
+        return root;
+    }
+
+    private static void unzip(File zip, File directory) throws IOException {
+        String canonicalDir = directory.getCanonicalPath() + File.separator;
+        ZipInputStream in = new ZipInputStream(new FileInputStream(zip));
+        try {
+            byte[] buffer = new byte[8 * 1024];
+            ZipEntry entry;
+            while ((entry = in.getNextEntry()) != null) {
+                File file = new File(directory, entry.getName());
+                if (!file.getCanonicalPath().startsWith(canonicalDir)) {
+                    throw new IOException("illegal entry: " + entry.getName());
+                }
+                if (entry.isDirectory()) {
+                    file.mkdirs();
+                    continue;
+                }
+                file.getParentFile().mkdirs();
+                OutputStream out = new FileOutputStream(file);
+                try {
+                    int count;
+                    while ((count = in.read(buffer)) != -1) {
+                        out.write(buffer, 0, count);
+                    }
+                } finally {
+                    out.close();
+                }
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    private static String getMimeType(String url) {
+        String mimeType = ResourceCache.getMimeType(url);
+        if (mimeType != null) {
+            return mimeType;
+        }
+        String extension = MimeTypeMap.getFileExtensionFromUrl(url);
+        if (TextUtil.isNotEmpty(extension)) {
+            mimeType = MimeTypeMap.getSingleton().getMimeTypeFromExtension(extension.toLowerCase(Locale.US));
+        }
+        if (mimeType != null) {
+            return mimeType;
+        }
+        String path = Uri.parse(url).getPath();
+        return TextUtil.isEmpty(path) || path.endsWith("/") ? "text/html" : "application/octet-stream";// 目录对应index.html
+    }
+
+    /**
+     * 页面持有的离线包快照，页面内的请求都从同一份快照中读取。线程安全。
+     */
+    public static class Holder {
+
+        private final Map<String, OfflinePackage> mPackages;
+        private boolean mReleased;
+
+        private Holder(Map<String, OfflinePackage> packages) {
+            mPackages = packages;
+        }
+
+        @Nullable
+        @WorkerThread
+        public ResourceCache.Resource resolve(String url) {
+            return OfflinePackageManager.resolve(mPackages, url);
+        }
+
+        public void release() {
+            synchronized (this) {
+                if (mReleased) {
+                    return;
+                }
+                mReleased = true;
+            }
+            OfflinePackageManager.release(mPackages);
+        }
+    }
+
+    public interface InstallCallback {
+        /**
+         * @param pkg 安装成功的离线包，安装失败或版本号不高于当前版本时为null
+         */
+        @MainThread
+        void onInstalled(@Nullable OfflinePackage pkg);
+    }
+}
@@ -0,0 +1,722 @@
+package com.joy.webview.cache;
+
+import android.net.Uri;
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+import android.webkit.MimeTypeMap;
+
+import com.joy.utils.LogMgr;
+import com.joy.utils.TextUtil;
+import com.joy.webview.JoyWeb;
+import com.joy.webview.utils.UriUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TimeZone;
+
+/**
+ * 静态资源（JS/CSS/图片/字体）的磁盘缓存，在shouldInterceptRequest中使用，只缓存{@link JoyWeb#setResourceCacheHosts}中的域名。
+ * 按Cache-Control/Expires判断是否过期，过期后带ETag/Last-Modified重新验证。超过容量上限时按LRU淘汰。
+ * 每个资源对应一个.meta文件，小于{@link SegmentStore#MAX_ENTRY_SIZE}的内容写入{@link SegmentStore}的段文件，
+ * 其余的先写到临时文件再重命名为独立的内容文件，进程被杀也不会留下不完整的缓存。
+ * 首次使用时把所有.meta读入内存，之后命中缓存不再打开.meta；命中段文件中的资源也不再打开任何文件。
+ * 未命中时带上页面请求的请求头（含Cookie）下载，只处理GET请求。
+ * 所有方法都可能访问磁盘和网络，不能在主线程调用。
+ */
+
+public class ResourceCache {
+
+    private static final String SUFFIX_META = ".meta";
+    private static final String SUFFIX_TEMP = ".tmp";
+    private static final int CONNECT_TIMEOUT = 10 * 1000;
+    private static final int READ_TIMEOUT = 15 * 1000;
+    private static final long MAX_HEURISTIC_AGE = 24 * 60 * 60 * 1000;// 1day
+    private static final long DEFAULT_HEURISTIC_AGE = 5 * 60 * 1000;// 5min，既没有过期时间也没有Last-Modified时使用
+    private static final long TOUCH_INTERVAL = 60 * 1000;// 1min
+    private static final String DIR_SEGMENTS = "segments";
+
+    private static final Map<String, String> MIME_TYPES = new HashMap<>();
+
+    static {
+        MIME_TYPES.put("js", "application/javascript");
+        MIME_TYPES.put("css", "text/css");
+        MIME_TYPES.put("png", "image/png");
+        MIME_TYPES.put("jpg", "image/jpeg");
+        MIME_TYPES.put("jpeg", "image/jpeg");
+        MIME_TYPES.put("gif", "image/gif");
+        MIME_TYPES.put("webp", "image/webp");
+        MIME_TYPES.put("svg", "image/svg+xml");
+        MIME_TYPES.put("ico", "image/x-icon");
+        MIME_TYPES.put("woff", "font/woff");
+        MIME_TYPES.put("woff2", "font/woff2");
+        MIME_TYPES.put("ttf", "font/ttf");
+        MIME_TYPES.put("otf", "font/otf");
+        MIME_TYPES.put("eot", "application/vnd.ms-fontobject");
+    }
+
+    // key: 缓存文件名，按访问顺序排列
+    private static final LinkedHashMap<String, Entry> sEntries = new LinkedHashMap<>(64, 0.75f, true);
+    private static File sDirectory;
+    private static SegmentStore sSegments;
+    private static long sSize;
+
+    /**
+     * @param url
+     * @param headers 页面发起请求时的请求头，调用方需自行补上对应内核CookieManager中的Cookie
+     * @return 命中缓存或下载成功时返回资源，不需要缓存的请求返回null，交给WebView自行加载
+     */
+    @Nullable
+    @WorkerThread
+    public static Resource load(String url, Map<String, String> headers) {
+        String mimeType = getMimeType(url);
+        if (mimeType == null || !isHostAllowed(url) || getHeader(headers, "Range") != null) {// 分段请求交给WebView
+            return null;
+        }
+        File directory = getDirectory();
+        if (directory == null) {
+            return null;
+        }
+        String key = toKey(UriUtils.normalize(url));
+        Entry entry = getEntry(key);
+        try {
+            if (entry != null) {
+                Properties meta = entry.meta;
+                if (getLong(meta, Meta.EXPIRES) > System.currentTimeMillis()) {
+                    InputStream data = openBody(key, entry);
+                    if (data != null) {
+                        touch(key, entry);
+                        return Resource.from(meta, data);
+                    }
+                } else if (meta.getProperty(Meta.ETAG) != null || meta.getProperty(Meta.LAST_MODIFIED) != null) {
+                    // 已过期，发送条件请求，否则重新下载
+                    return fetch(url, headers, key, mimeType, entry);
+                }
+            }
+            return fetch(url, headers, key, mimeType, null);
+        } catch (Exception e) {
+            if (LogMgr.DEBUG) {
+                LogMgr.d("core-web", "ResourceCache load # url: " + url + " error: " + e);
+            }
+            return null;
+        }
+    }
+
+    public static synchronized void clear() {
+        File directory = getDirectory();
+        if (sSegments != null) {
+            sSegments.clear();
+        }
+        if (directory != null) {
+            File[] files = directory.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+        }
+        sEntries.clear();
+        sSize = 0;
+    }
+
+    @Nullable
+    static String getMimeType(String url) {
+        Uri uri = Uri.parse(url);
+        String scheme = uri.getScheme();
+        if (!"http".equalsIgnoreCase(scheme) && !"https".equalsIgnoreCase(scheme)) {
+            return null;
+        }
+        String extension = MimeTypeMap.getFileExtensionFromUrl(url);
+        if (TextUtil.isEmpty(extension)) {
+            String path = uri.getPath();
+            int dot = path == null ? -1 : path.lastIndexOf('.');
+            extension = dot < 0 ? null : path.substring(dot + 1);
+        }
+        return extension == null ? null : MIME_TYPES.get(extension.toLowerCase(Locale.US));
+    }
+
+    private static boolean isHostAllowed(String url) {
+        String host = Uri.parse(url).getHost();
+        if (TextUtil.isEmpty(host)) {
+            return false;
+        }
+        host = host.toLowerCase(Locale.US);
+        for (String allowed : JoyWeb.getResourceCacheHosts()) {
+            if (allowed.startsWith("*.") ? host.endsWith(allowed.substring(1)) : host.equals(allowed)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Nullable
+    private static String getHeader(Map<String, String> headers, String name) {
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            if (name.equalsIgnoreCase(header.getKey())) {
+                return header.getValue();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param headers    原样转发页面的请求头（Cookie、Referer、Origin、Accept等），压缩和条件请求由这里自行处理
+     * @param validating 不为空时发送条件请求，304时沿用本地内容并更新过期时间
+     */
+    private static Resource fetch(String url, Map<String, String> headers, String key, String mimeType, @Nullable Entry validating) throws IOException {
+        HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
+        conn.setConnectTimeout(CONNECT_TIMEOUT);
+        conn.setReadTimeout(READ_TIMEOUT);
+        conn.setUseCaches(false);
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            String name = header.getKey();
+            if (name != null && header.getValue() != null && !isHopHeader(name)) {
+                conn.setRequestProperty(name, header.getValue());
+            }
+        }
+        String userAgent = JoyWeb.getUserAgent();
+        if (getHeader(headers, "User-Agent") == null && TextUtil.isNotEmpty(userAgent)) {
+            conn.setRequestProperty("User-Agent", userAgent);
+        }
+        if (validating != null) {
+            String etag = validating.meta.getProperty(Meta.ETAG);
+            String lastModified = validating.meta.getProperty(Meta.LAST_MODIFIED);
+            if (etag != null) {
+                conn.setRequestProperty("If-None-Match", etag);
+            }
+            if (lastModified != null) {
+                conn.setRequestProperty("If-Modified-Since", lastModified);
+            }
+        }
+        try {
+            int code = conn.getResponseCode();
+            if (code == HttpURLConnection.HTTP_NOT_MODIFIED && validating != null) {
+                Properties meta = new Properties();
+                meta.putAll(validating.meta);
+                meta.setProperty(Meta.EXPIRES, String.valueOf(getExpires(conn, validating.meta.getProperty(Meta.LAST_MODIFIED))));
+                String etag = conn.getHeaderField("ETag");
+                if (etag != null) {
+                    meta.setProperty(Meta.ETAG, etag);
+                }
+                InputStream data = openBody(key, validating);
+                if (data == null) {
+                    return null;
+                }
+                synchronized (ResourceCache.class) {
+                    writeMeta(getMetaFile(key), meta);
+                    validating.meta = meta;
+                }
+                touch(key, validating);
+                return Resource.from(meta, data);
+            }
+            if (code != HttpURLConnection.HTTP_OK) {
+                return null;
+            }
+            Properties meta = new Properties();
+            String contentType = conn.getContentType();
+            meta.setProperty(Meta.MIME_TYPE, parseMimeType(contentType, mimeType));
+            String encoding = parseCharset(contentType);
+            if (encoding != null) {
+                meta.setProperty(Meta.ENCODING, encoding);
+            }
+            String allowOrigin = conn.getHeaderField("Access-Control-Allow-Origin");
+            if (allowOrigin != null) {
+                meta.setProperty(Meta.ALLOW_ORIGIN, allowOrigin);
+            }
+            if (!isStorable(conn)) {
+                return Resource.from(meta, readFully(conn.getInputStream()));
+            }
+            String etag = conn.getHeaderField("ETag");
+            String lastModified = conn.getHeaderField("Last-Modified");
+            if (etag != null) {
+                meta.setProperty(Meta.ETAG, etag);
+            }
+            if (lastModified != null) {
+                meta.setProperty(Meta.LAST_MODIFIED, lastModified);
+            }
+            meta.setProperty(Meta.EXPIRES, String.valueOf(getExpires(conn, null)));
+            Resource resource = store(key, meta, conn.getInputStream());
+            if (LogMgr.DEBUG) {
+                LogMgr.d("core-web", "ResourceCache fetch # url: " + url + " length: " + meta.getProperty(Meta.LENGTH) + " size: " + sSize);
+            }
+            return resource;
+        } finally {
+            conn.disconnect();
+        }
+    }
+
+    /**
+     * 压缩由HttpURLConnection自行协商和解压；条件请求和分段请求不能沿用页面的请求头。
+     */
+    private static boolean isHopHeader(String name) {
+        return "Accept-Encoding".equalsIgnoreCase(name)
+                || "If-None-Match".equalsIgnoreCase(name)
+                || "If-Modified-Since".equalsIgnoreCase(name)
+                || "Range".equalsIgnoreCase(name)
+                || "Host".equalsIgnoreCase(name);
+    }
+
+    /**
+     * 内容不超过{@link SegmentStore#MAX_ENTRY_SIZE}时写入段文件，否则写入独立的内容文件。
+     * 没有Content-Length（如chunked）时边下载边计数，超过{@link #getMaxEntrySize()}时只返回内容不缓存。
+     */
+    @Nullable
+    private static Resource store(String key, Properties meta, InputStream in) throws IOException {
+        File file = new File(sDirectory, key);
+        File temp = new File(file.getPath() + SUFFIX_TEMP + Thread.currentThread().getId());
+        byte[] buffer = new byte[SegmentStore.MAX_ENTRY_SIZE];
+        int length = 0;
+        boolean small;
+        try {
+            int count;
+            while (length < buffer.length && (count = in.read(buffer, length, buffer.length - length)) != -1) {
+                length += count;
+            }
+            int next = length < buffer.length ? -1 : in.read();
+            small = next == -1;
+            if (!small) {
+                OutputStream out = new FileOutputStream(temp);
+                try {
+                    out.write(buffer, 0, length);
+                    out.write(next);
+                    length += 1 + copy(in, out);
+                } finally {
+                    closeQuietly(out);
+                }
+            }
+        } finally {
+            closeQuietly(in);
+        }
+        if (length > getMaxEntrySize()) {
+            if (small) {
+                return Resource.from(meta, new ByteArrayInputStream(buffer, 0, length));
+            }
+            InputStream data = new FileInputStream(temp);// 打开后即删除临时文件，流关闭后空间自动释放
+            temp.delete();
+            return Resource.from(meta, data);
+        }
+        synchronized (ResourceCache.class) {
+            int[] location = small ? getSegments().append(buffer, length) : null;
+            if (location != null) {
+                meta.setProperty(Meta.SEGMENT, String.valueOf(location[0]));
+                meta.setProperty(Meta.OFFSET, String.valueOf(location[1]));
+            } else {
+                if (small) {// 段文件写入失败时退回到独立的内容文件
+                    OutputStream out = new FileOutputStream(temp);
+                    try {
+                        out.write(buffer, 0, length);
+                    } finally {
+                        closeQuietly(out);
+                    }
+                }
+                if (!temp.renameTo(file)) {
+                    temp.delete();
+                    return null;
+                }
+            }
+            meta.setProperty(Meta.LENGTH, String.valueOf(length));
+            Entry entry = new Entry(meta);
+            writeMeta(getMetaFile(key), meta);
+            put(key, entry);
+            return Resource.from(meta, small ? new ByteArrayInputStream(buffer, 0, length) : new FileInputStream(file));
+        }
+    }
+
+    private static boolean isStorable(HttpURLConnection conn) {
+        String cacheControl = conn.getHeaderField("Cache-Control");
+        if (cacheControl != null && cacheControl.toLowerCase(Locale.US).contains("no-store")) {
+            return false;
+        }
+        String vary = conn.getHeaderField("Vary");
+        if (vary != null && vary.trim().equals("*")) {
+            return false;
+        }
+        long contentLength = conn.getContentLength();// -1表示长度未知，在store时边下载边检查
+        return contentLength < 0 || contentLength <= getMaxEntrySize();
+    }
+
+    /**
+     * 单个资源不超过总容量的1/8
+     */
+    private static long getMaxEntrySize() {
+        return JoyWeb.getResourceCacheMaxSize() / 8;
+    }
+
+    /**
+     * 依次按Cache-Control的no-cache/max-age、Expires、Last-Modified（取10%的启发式有效期）计算过期时间，
+     * 都没有时使用{@link #DEFAULT_HEURISTIC_AGE}，避免没有新鲜度信息的资源每次都要重新验证。
+     *
+     * @param lastModified 304响应通常不带Last-Modified，此时使用缓存中记录的值
+     */
+    private static long getExpires(HttpURLConnection conn, @Nullable String lastModified) {
+        long now = System.currentTimeMillis();
+        String cacheControl = conn.getHeaderField("Cache-Control");
+        if (cacheControl != null) {
+            for (String directive : cacheControl.toLowerCase(Locale.US).split(",")) {
+                directive = directive.trim();
+                if (directive.equals("no-cache")) {
+                    return 0;
+                }
+                if (directive.startsWith("max-age=")) {
+                    try {
+                        return now + Long.parseLong(directive.substring(8).trim()) * 1000;
+                    } catch (NumberFormatException e) {
+                        return 0;
+                    }
+                }
+            }
+        }
+        long expires = conn.getHeaderFieldDate("Expires", 0);
+        if (expires > 0) {
+            return expires;
+        }
+        long modified = conn.getHeaderFieldDate("Last-Modified", 0);
+        if (modified <= 0 && lastModified != null) {
+            modified = parseDate(lastModified);
+        }
+        if (modified > 0 && modified < now) {
+            return now + Math.min((now - modified) / 10, MAX_HEURISTIC_AGE);
+        }
+        return now + DEFAULT_HEURISTIC_AGE;
+    }
+
+    private static long parseDate(String date) {
+        try {
+            SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);// RFC 1123
+            format.setTimeZone(TimeZone.getTimeZone("GMT"));
+            return format.parse(date).getTime();
+        } catch (Exception e) {
+            return 0;
+        }
+    }
+
+    private static String parseMimeType(@Nullable String contentType, String defaultMimeType) {
+        if (TextUtil.isEmpty(contentType)) {
+            return defaultMimeType;
+        }
+        int index = contentType.indexOf(';');
+        String mimeType = (index < 0 ? contentType : contentType.substring(0, index)).trim();
+        return mimeType.isEmpty() ? defaultMimeType : mimeType;
+    }
+
+    @Nullable
+    private static String parseCharset(@Nullable String contentType) {
+        if (contentType == null) {
+            return null;
+        }
+        for (String param : contentType.split(";")) {
+            param = param.trim();
+            if (param.toLowerCase(Locale.US).startsWith("charset=")) {
+                return param.substring(8).replace("\"", "").trim();
+            }
+        }
+        return null;
+    }
+
+    private static synchronized File getDirectory() {
+        if (sDirectory == null) {
+            String path = JoyWeb.getResourceCacheDir();
+            if (TextUtil.isEmpty(path)) {
+                return null;
+            }
+            File directory = new File(path);
+            if (!directory.exists() && !directory.mkdirs()) {
+                return null;
+            }
+            sDirectory = directory;
+            sSegments = new SegmentStore(new File(directory, DIR_SEGMENTS));
+            loadEntries(directory);
+        }
+        return sDirectory;
+    }
+
+    /**
+     * 首次使用时扫描缓存目录，读入所有的.meta，按最后修改时间恢复LRU顺序，并清理残留的临时文件和无效的缓存。
+     */
+    private static void loadEntries(File directory) {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files, (f1, f2) -> {// Long.compare需要API 19
+            long t1 = f1.lastModified(), t2 = f2.lastModified();
+            return t1 < t2 ? -1 : (t1 == t2 ? 0 : 1);
+        });
+        for (File file : files) {
+            String name = file.getName();
+            if (file.isDirectory()) {
+                continue;
+            }
+            if (name.contains(SUFFIX_TEMP)) {
+                file.delete();
+            } else if (name.endsWith(SUFFIX_META)) {
+                String key = name.substring(0, name.length() - SUFFIX_META.length());
+                Properties meta = readMeta(file);
+                Entry entry = meta == null ? null : new Entry(meta);
+                boolean valid = entry != null && (entry.segment >= 0
+                        ? sSegments.restore(entry.segment, entry.offset, entry.length)
+                        : new File(directory, key).length() == entry.length);
+                if (valid) {
+                    sEntries.put(key, entry);
+                    sSize += entry.length;
+                } else {
+                    file.delete();
+                    new File(directory, key).delete();
+                }
+            } else if (!new File(directory, name + SUFFIX_META).exists()) {
+                file.delete();
+            }
+        }
+        sSegments.prune();
+        trimToSize(JoyWeb.getResourceCacheMaxSize());
+    }
+
+    @Nullable
+    private static synchronized Entry getEntry(String key) {
+        return sEntries.get(key);
+    }
+
+    private static SegmentStore getSegments() {
+        return sSegments;
+    }
+
+    private static File getMetaFile(String key) {
+        return new File(sDirectory, key + SUFFIX_META);
+    }
+
+    @Nullable
+    private static synchronized InputStream openBody(String key, Entry entry) {
+        if (entry.segment >= 0) {
+            return sSegments.open(entry.segment, entry.offset, entry.length);
+        }
+        try {
+            return new FileInputStream(new File(sDirectory, key));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 用.meta的最后修改时间记录访问顺序，一分钟内最多更新一次。
+     */
+    private static synchronized void touch(String key, Entry entry) {
+        sEntries.get(key);
+        long now = System.currentTimeMillis();
+        if (now - entry.touchedAt > TOUCH_INTERVAL) {
+            entry.touchedAt = now;
+            getMetaFile(key).setLastModified(now);
+        }
+    }
+
+    private static void put(String key, Entry entry) {
+        Entry previous = sEntries.put(key, entry);
+        sSize += entry.length;
+        if (previous != null) {
+            sSize -= previous.length;
+            if (previous.segment >= 0) {
+                sSegments.release(previous.segment, previous.length);
+            } else if (entry.segment >= 0) {
+                new File(sDirectory, key).delete();
+            }
+        }
+        trimToSize(JoyWeb.getResourceCacheMaxSize());
+    }
+
+    /**
+     * 已写满的段中淘汰资源留下的空间也计入容量。段内的资源单独淘汰不能释放磁盘空间，
+     * 所以先整段淘汰存活内容最少的已写满的段，没有时再按LRU淘汰独立文件和当前段中的资源。
+     */
+    private static void trimToSize(long maxSize) {
+        while (sSize + sSegments.getDeadSize() > maxSize && !sEntries.isEmpty()) {
+            int segment = sSegments.getSparsestSegment();
+            int count = sEntries.size();
+            Iterator<Map.Entry<String, Entry>> iterator = sEntries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<String, Entry> item = iterator.next();
+                if (segment < 0 || item.getValue().segment == segment) {
+                    iterator.remove();
+                    remove(item.getKey(), item.getValue());
+                    if (segment < 0) {
+                        break;
+                    }
+                }
+            }
+            if (sEntries.size() == count) {
+                break;
+            }
+        }
+    }
+
+    private static void remove(String key, Entry entry) {
+        sSize -= entry.length;
+        if (entry.segment >= 0) {
+            sSegments.release(entry.segment, entry.length);
+        } else {
+            new File(sDirectory, key).delete();
+        }
+        getMetaFile(key).delete();
+    }
+
+    @Nullable
+    private static Properties readMeta(File metaFile) {
+        if (!metaFile.exists()) {
+            return null;
+        }
+        InputStream in = null;
+        try {
+            in = new FileInputStream(metaFile);
+            Properties meta = new Properties();
+            meta.load(in);
+            return meta;
+        } catch (IOException e) {
+            return null;
+        } finally {
+            closeQuietly(in);
+        }
+    }
+
+    private static void writeMeta(File metaFile, Properties meta) throws IOException {
+        File temp = new File(metaFile.getPath() + SUFFIX_TEMP + Thread.currentThread().getId());
+        OutputStream out = new FileOutputStream(temp);
+        try {
+            meta.store(out, null);
+        } finally {
+            closeQuietly(out);
+        }
+        if (!temp.renameTo(metaFile)) {
+            temp.delete();
+            throw new IOException("rename failed: " + metaFile);
+        }
+    }
+
+    private static long getLong(Properties meta, String key) {
+        return getLong(meta, key, 0);
+    }
+
+    private static long getLong(Properties meta, String key, long defaultValue) {
+        try {
+            String value = meta.getProperty(key);
+            return value == null ? defaultValue : Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    private static long copy(InputStream in, OutputStream out) throws IOException {
+        long length = 0;
+        byte[] buffer = new byte[8 * 1024];
+        int count;
+        while ((count = in.read(buffer)) != -1) {
+            out.write(buffer, 0, count);
+            length += count;
+        }
+        return length;
+    }
+
+    private static InputStream readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            byte[] buffer = new byte[8 * 1024];
+            int count;
+            while ((count = in.read(buffer)) != -1) {
+                out.write(buffer, 0, count);
+            }
+        } finally {
+            closeQuietly(in);
+        }
+        return new ByteArrayInputStream(out.toByteArray());
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private static String toKey(String url) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(url.getBytes("UTF-8"));
+            StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                sb.append(String.format("%02x", b & 0xff));
+            }
+            return sb.toString();
+        } catch (Exception e) {
+            return String.valueOf(url.hashCode());
+        }
+    }
+
+    private interface Meta {
+        String MIME_TYPE = "mimeType";
+        String ENCODING = "encoding";
+        String ETAG = "etag";
+        String LAST_MODIFIED = "lastModified";
+        String EXPIRES = "expires";
+        String ALLOW_ORIGIN = "allowOrigin";
+        String LENGTH = "length";
+        String SEGMENT = "segment";
+        String OFFSET = "offset";
+    }
+
+    private static class Entry {
+        volatile Properties meta;// 304时整体替换
+        final long length;
+        final int segment;// 不在段文件中时为-1
+        final int offset;
+        long touchedAt;
+
+        Entry(Properties meta) {
+            this.meta = meta;
+            this.length = getLong(meta, Meta.LENGTH);
+            this.segment = (int) getLong(meta, Meta.SEGMENT, -1);
+            this.offset = (int) getLong(meta, Meta.OFFSET);
+            this.touchedAt = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * 与内核无关的资源描述，由各Presenter转换为对应内核的WebResourceResponse。
+     */
+    public static class Resource {
+        public final String mimeType;
+        @Nullable
+        public final String encoding;
+        public final InputStream data;
+        public final Map<String, String> headers = new HashMap<>();
+
+        Resource(String mimeType, @Nullable String encoding, InputStream data) {
+            this.mimeType = mimeType;
+            this.encoding = encoding;
+            this.data = data;
+        }
+
+        static Resource from(Properties meta, InputStream data) {
+            Resource resource = new Resource(meta.getProperty(Meta.MIME_TYPE), meta.getProperty(Meta.ENCODING), data);
+            String allowOrigin = meta.getProperty(Meta.ALLOW_ORIGIN);
+            if (allowOrigin != null) {
+                resource.headers.put("Access-Control-Allow-Origin", allowOrigin);
+            }
+            return resource;
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package com.joy.webview.cache;
+
+import android.support.annotation.Nullable;
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+
+import com.joy.utils.LogMgr;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * 把小资源顺序写入固定大小的段文件，每个段文件只打开和映射一次，之后读写都直接访问{@link MappedByteBuffer}。
+ * 读取时返回映射区域上的{@link InputStream}视图，不再为每个资源打开文件，也不会把内容复制到堆中。
+ * 段内的资源不能单独释放，段内所有资源都被淘汰后删除整个段文件。已写满的段中被淘汰资源留下的空间仍占用磁盘，
+ * 通过{@link #getDeadSize()}计入缓存容量，由{@link ResourceCache}整段淘汰（见{@link #getSparsestSegment()}）。
+ * 当前段中的这部分空间不计入，最多超出一个段的大小，写满后再按整段计算。
+ * 由{@link ResourceCache}在持有其类锁时调用。
+ */
+
+class SegmentStore {
+
+    static final int MAX_ENTRY_SIZE = 64 * 1024;// 64K
+    private static final int SEGMENT_SIZE = 4 * 1024 * 1024;// 4M
+    private static final String PREFIX_SEGMENT = "seg-";
+
+    private final File mDirectory;
+    private final SparseArray<MappedByteBuffer> mBuffers = new SparseArray<>();
+    private final SparseIntArray mLiveCounts = new SparseIntArray();
+    private final SparseIntArray mLiveSizes = new SparseIntArray();
+    private int mCurrentSegment = -1;
+    private int mWriteOffset;
+
+    SegmentStore(File directory) {
+        mDirectory = directory;
+        mDirectory.mkdirs();
+    }
+
+    /**
+     * 启动时由已有的索引恢复段内的资源。
+     *
+     * @return 段文件不存在或位置无效时返回false
+     */
+    boolean restore(int segment, int offset, long length) {
+        if (offset < 0 || length < 0 || offset + length > SEGMENT_SIZE || !getFile(segment).exists()) {
+            return false;
+        }
+        mLiveCounts.put(segment, mLiveCounts.get(segment) + 1);
+        mLiveSizes.put(segment, mLiveSizes.get(segment) + (int) length);
+        if (segment > mCurrentSegment) {
+            mCurrentSegment = segment;
+            mWriteOffset = 0;
+        }
+        if (segment == mCurrentSegment) {
+            mWriteOffset = (int) Math.max(mWriteOffset, offset + length);
+        }
+        return true;
+    }
+
+    /**
+     * 删除没有任何资源引用的段文件，在{@link #restore}之后调用。
+     */
+    void prune() {
+        File[] files = mDirectory.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            int segment = parseSegment(file.getName());
+            if (segment < 0 || mLiveCounts.get(segment) == 0) {
+                file.delete();
+            }
+        }
+    }
+
+    /**
+     * @return {segment, offset}，写入失败时返回null
+     */
+    @Nullable
+    int[] append(byte[] data, int length) {
+        if (length > MAX_ENTRY_SIZE) {
+            return null;
+        }
+        try {
+            if (mCurrentSegment < 0 || mWriteOffset + length > SEGMENT_SIZE) {
+                int previous = mCurrentSegment;
+                mCurrentSegment++;
+                mWriteOffset = 0;
+                if (previous >= 0 && mLiveCounts.get(previous) == 0) {
+                    mBuffers.remove(previous);
+                    getFile(previous).delete();
+                }
+            }
+            MappedByteBuffer mapped = getBuffer(mCurrentSegment);
+            ByteBuffer buffer = mapped.duplicate();
+            buffer.position(mWriteOffset);
+            buffer.put(data, 0, length);
+            mapped.force();// 内容写回磁盘后才由调用方写.meta，否则掉电后.meta可能指向未落盘的内容
+            int[] location = {mCurrentSegment, mWriteOffset};
+            mWriteOffset += length;
+            mLiveCounts.put(mCurrentSegment, mLiveCounts.get(mCurrentSegment) + 1);
+            mLiveSizes.put(mCurrentSegment, mLiveSizes.get(mCurrentSegment) + length);
+            return location;
+        } catch (IOException e) {
+            if (LogMgr.DEBUG) {
+                LogMgr.d("core-web", "SegmentStore append # error: " + e);
+            }
+            return null;
+        }
+    }
+
+    @Nullable
+    InputStream open(int segment, int offset, long length) {
+        try {
+            ByteBuffer buffer = getBuffer(segment).duplicate();
+            buffer.limit((int) (offset + length));
+            buffer.position(offset);
+            return new ByteBufferInputStream(buffer.slice());
+        } catch (IOException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    void release(int segment, long length) {
+        int count = mLiveCounts.get(segment) - 1;
+        if (count > 0) {
+            mLiveCounts.put(segment, count);
+            mLiveSizes.put(segment, mLiveSizes.get(segment) - (int) length);
+            return;
+        }
+        mLiveCounts.delete(segment);
+        mLiveSizes.delete(segment);
+        if (segment != mCurrentSegment) {
+            mBuffers.remove(segment);// 已映射的区域在被GC前仍然可读，正在读取的流不受影响
+            getFile(segment).delete();
+        }
+    }
+
+    /**
+     * @return 已写满的段中被淘汰但还不能释放的空间，不包括当前段
+     */
+    long getDeadSize() {
+        long size = 0;
+        for (int i = 0; i < mLiveSizes.size(); i++) {
+            if (mLiveSizes.keyAt(i) != mCurrentSegment) {
+                size += SEGMENT_SIZE - mLiveSizes.valueAt(i);
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return 已写满的段中存活内容最少的段，整段淘汰可以释放一个段的磁盘空间，没有时返回-1
+     */
+    int getSparsestSegment() {
+        int sparsest = -1;
+        int minSize = Integer.MAX_VALUE;
+        for (int i = 0; i < mLiveSizes.size(); i++) {
+            int segment = mLiveSizes.keyAt(i);
+            int size = mLiveSizes.valueAt(i);
+            if (segment != mCurrentSegment && size < minSize) {
+                sparsest = segment;
+                minSize = size;
+            }
+        }
+        return sparsest;
+    }
+
+    void clear() {
+        mBuffers.clear();
+        mLiveCounts.clear();
+        mLiveSizes.clear();
+        mCurrentSegment = -1;
+        mWriteOffset = 0;
+        File[] files = mDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+    }
+
+    private MappedByteBuffer getBuffer(int segment) throws IOException {
+        MappedByteBuffer buffer = mBuffers.get(segment);
+        if (buffer == null) {
+            RandomAccessFile file = new RandomAccessFile(getFile(segment), "rw");
+            try {
+                if (file.length() < SEGMENT_SIZE) {
+                    file.setLength(SEGMENT_SIZE);
+                }
+                // 映射在通道关闭后仍然有效
+                buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, SEGMENT_SIZE);
+            } finally {
+                file.close();
+            }
+            mBuffers.put(segment, buffer);
+        }
+        return buffer;
+    }
+
+    private File getFile(int segment) {
+        return new File(mDirectory, PREFIX_SEGMENT + segment);
+    }
+
+    private static int parseSegment(String name) {
+        if (!name.startsWith(PREFIX_SEGMENT)) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(name.substring(PREFIX_SEGMENT.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * 映射区域上的只读视图，每次读取直接从映射内存复制到调用方的缓冲区。
+     */
+    private static class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer mBuffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            mBuffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return mBuffer.hasRemaining() ? mBuffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!mBuffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(len, mBuffer.remaining());
+            mBuffer.get(b, off, count);
+            return count;
+        }
+
+        @Override
+        public long skip(long n) {
+            int count = (int) Math.max(Math.min(n, mBuffer.remaining()), 0);
+            mBuffer.position(mBuffer.position() + count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return mBuffer.remaining();
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package com.joy.webview.metrics;
+
+import android.os.SystemClock;
+import android.support.annotation.MainThread;
+
+import com.joy.webview.JoyWeb;
+import com.joy.webview.utils.Navigation;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 一次导航的加载耗时记录，由Presenter在主线程中记录，在页面回调onPageFinished、加载失败或被新的导航取代时
+ * 通过{@link JoyWeb#setPageLoadListener}设置的监听器上报一次。onPageFinished时正在获取Document的，获取结束后再上报。
+ * 自动重试时失败的各次不上报，只上报最后一次导航（见{@link #getRetryCount()}）。
+ * 除{@link #getStartedAt()}外，时间点都是相对导航开始的毫秒数，未发生时为-1。
+ */
+
+public class PageLoadMetrics {
+
+    public static final String ENGINE_WEBVIEW = "webview";
+    public static final String ENGINE_X5 = "x5";
+
+    private final Navigation mNavigation;
+    private final String mEngine;
+    private final long mStartedAt;
+    private final int mRetryCount;
+    private long mFirstProgressTime = -1;
+    private long mCommitTime = -1;
+    private long mVisibleTime = -1;
+    private long mFinishTime = -1;
+    private long mCaptureStartTime = -1;
+    private long mCaptureDuration = -1;
+    private long mParseDuration = -1;
+    private int mErrorCode;
+    private boolean mReported;
+    private final AtomicInteger mInterceptedCount = new AtomicInteger();
+    private final AtomicLong mInterceptedBytes = new AtomicLong();
+
+    public PageLoadMetrics(Navigation navigation, String engine, int retryCount) {
+        mNavigation = navigation;
+        mEngine = engine;
+        mRetryCount = retryCount;
+        mStartedAt = System.currentTimeMillis() - (SystemClock.elapsedRealtime() - navigation.getStartTime());
+    }
+
+    private long elapsed() {
+        return SystemClock.elapsedRealtime() - mNavigation.getStartTime();
+    }
+
+    @MainThread
+    public void onProgress() {
+        if (mFirstProgressTime < 0) {
+            mFirstProgressTime = elapsed();
+        }
+    }
+
+    @MainThread
+    public void onCommitted() {
+        if (mCommitTime < 0) {
+            mCommitTime = elapsed();
+        }
+    }
+
+    @MainThread
+    public void onVisible() {
+        if (mVisibleTime < 0) {
+            mVisibleTime = elapsed();
+        }
+    }
+
+    @MainThread
+    public void onFinished() {
+        if (mFinishTime < 0) {
+            mFinishTime = elapsed();
+        }
+    }
+
+    @MainThread
+    public void onFailed(int errorCode) {
+        mErrorCode = errorCode;
+    }
+
+    /**
+     * 开始获取页面的HTML或提取片段。
+     */
+    @MainThread
+    public void onCaptureStarted() {
+        if (mCaptureStartTime < 0) {
+            mCaptureStartTime = elapsed();
+        }
+    }
+
+    /**
+     * @param parseDuration 在后台解析的耗时，没有解析时为-1
+     */
+    @MainThread
+    public void onCaptured(long parseDuration) {
+        if (mCaptureStartTime >= 0 && mCaptureDuration < 0) {
+            mCaptureDuration = elapsed() - mCaptureStartTime;
+            mParseDuration = parseDuration;
+        }
+    }
+
+    /**
+     * 统计由shouldInterceptRequest返回的资源，在WebView读取时累计字节数。可以在任意线程调用。
+     */
+    public InputStream onIntercepted(InputStream data) {
+        mInterceptedCount.incrementAndGet();
+        return new FilterInputStream(data) {
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b != -1) {
+                    mInterceptedBytes.incrementAndGet();
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int count) throws IOException {
+                int read = super.read(buffer, offset, count);
+                if (read > 0) {
+                    mInterceptedBytes.addAndGet(read);
+                }
+                return read;
+            }
+        };
+    }
+
+    /**
+     * 只上报一次。
+     */
+    @MainThread
+    public void report() {
+        if (mReported) {
+            return;
+        }
+        mReported = true;
+        Listener listener = JoyWeb.getPageLoadListener();
+        if (listener != null) {
+            listener.onPageLoad(this);
+        }
+    }
+
+    public int getNavigationId() {
+        return mNavigation.getId();
+    }
+
+    public String getEngine() {
+        return mEngine;
+    }
+
+    public String getUrl() {
+        return mNavigation.getInitialUrl();
+    }
+
+    /**
+     * @return 重定向后的URL
+     */
+    public String getFinalUrl() {
+        return mNavigation.getUrl();
+    }
+
+    /**
+     * @return {@link Navigation}中的状态，未结束（如被新的导航取代）时为STARTED/REDIRECTED/COMMITTED
+     */
+    public int getState() {
+        return mNavigation.getState();
+    }
+
+    public int getErrorCode() {
+        return mErrorCode;
+    }
+
+    public int getRedirectCount() {
+        return mNavigation.getRedirectCount();
+    }
+
+    /**
+     * @return 本次导航之前已自动重试的次数
+     */
+    public int getRetryCount() {
+        return mRetryCount;
+    }
+
+    /**
+     * @return 开始的时间戳
+     */
+    public long getStartedAt() {
+        return mStartedAt;
+    }
+
+    public long getFirstProgressTime() {
+        return mFirstProgressTime;
+    }
+
+    public long getCommitTime() {
+        return mCommitTime;
+    }
+
+    /**
+     * @return 首次显示内容的时间，只在能获取到onPageCommitVisible或进度回调时记录
+     */
+    public long getVisibleTime() {
+        return mVisibleTime;
+    }
+
+    public long getFinishTime() {
+        return mFinishTime;
+    }
+
+    /**
+     * @return 从开始获取HTML到主线程拿到Document（或提取结果）的耗时，包括{@link #getParseDuration()}。
+     * 懒加载模式下（见{@link JoyWeb#setDocumentCaptureEager}），页面加载完成后才请求的获取不计入，为-1
+     */
+    public long getCaptureDuration() {
+        return mCaptureDuration;
+    }
+
+    public long getParseDuration() {
+        return mParseDuration;
+    }
+
+    /**
+     * @return 由离线包或资源缓存返回的资源个数
+     */
+    public int getInterceptedCount() {
+        return mInterceptedCount.get();
+    }
+
+    /**
+     * @return 上报时WebView已从离线包或资源缓存读取的字节数
+     */
+    public long getInterceptedBytes() {
+        return mInterceptedBytes.get();
+    }
+
+    @Override
+    public String toString() {
+        return "PageLoadMetrics{id=" + getNavigationId() + ", engine=" + mEngine + ", state=" + getState() + ", errorCode=" + mErrorCode
+                + ", firstProgress=" + mFirstProgressTime + ", commit=" + mCommitTime + ", visible=" + mVisibleTime + ", finish=" + mFinishTime
+                + ", capture=" + mCaptureDuration + ", parse=" + mParseDuration + ", redirects=" + getRedirectCount() + ", retries=" + mRetryCount
+                + ", intercepted=" + getInterceptedCount() + "/" + getInterceptedBytes() + "B, url=" + getUrl() + "}";
+    }
+
+    public interface Listener {
+        @MainThread
+        void onPageLoad(PageLoadMetrics metrics);
+    }
+}
@@ -0,0 +1,161 @@
+package com.joy.webview.metrics;
+
+import android.annotation.SuppressLint;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.WorkerThread;
+import android.webkit.JavascriptInterface;
+
+import com.joy.utils.LogMgr;
+import com.joy.webview.JoyWeb;
+import com.joy.webview.utils.HtmlParseExecutor;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 页面加载完成后注入JS，读取performance中navigation和resource类型的条目，以紧凑的数组格式通过JavascriptInterface回传，
+ * 在后台线程按域名汇总（p50/p95耗时、字节数）并找出体积最大的资源，再在主线程通过{@link JoyWeb#setResourceTimingListener}设置的监听器上报。
+ * 只在设置了监听器时由Presenter注册到WebView。
+ */
+
+public class ResourceTimingCollector {
+
+    public static final String JS_NAME = "perfTiming";
+    private static final int MAX_RESOURCES = 300;
+    private static final int LARGEST_COUNT = 5;
+
+    // 导航条目：domainLookupStart,domainLookupEnd,connectStart,secureConnectionStart,connectEnd,requestStart,responseStart,responseEnd,domInteractive,domComplete,loadEventEnd
+    // 资源条目：[name,initiatorType,startTime,duration,transferSize,encodedBodySize]
+    private static final String SCRIPT = "javascript:(function(){var p=window.performance;if(!p||!p.getEntriesByType||!window." + JS_NAME + ")return;" +
+            "setTimeout(function(){var n=p.getEntriesByType('navigation')[0]||p.timing,b=n.startTime===undefined?n.navigationStart:0," +
+            "f=function(v){return v>0?Math.round(v-b):0;}," +
+            "d=[f(n.domainLookupStart),f(n.domainLookupEnd),f(n.connectStart),f(n.secureConnectionStart),f(n.connectEnd),f(n.requestStart)," +
+            "f(n.responseStart),f(n.responseEnd),f(n.domInteractive),f(n.domComplete),f(n.loadEventEnd)]," +
+            "r=p.getEntriesByType('resource').slice(0,%d).map(function(e){return[e.name,e.initiatorType,Math.round(e.startTime)," +
+            "Math.round(e.duration),e.transferSize||0,e.encodedBodySize||0];});" +
+            "window." + JS_NAME + ".receivedTimings(%d,location.href,JSON.stringify({n:d,r:r}));},0);})();";
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final String mEngine;
+
+    public ResourceTimingCollector(String engine) {
+        mEngine = engine;
+    }
+
+    /**
+     * @param navigationId 回传时带上，用于和{@link PageLoadMetrics}对应
+     * @return 需要在页面加载完成后通过loadUrl执行的JS
+     */
+    @SuppressLint("DefaultLocale")
+    public String getScript(int navigationId) {
+        return String.format(SCRIPT, MAX_RESOURCES, navigationId);
+    }
+
+    @JavascriptInterface
+    @WorkerThread
+    public void receivedTimings(int navigationId, String url, String json) {
+        HtmlParseExecutor.execute(() -> {// 不占用JavaBridge线程
+            ResourceTimingReport report;
+            try {
+                report = aggregate(navigationId, url, json);
+            } catch (Exception e) {
+                if (LogMgr.DEBUG) {
+                    LogMgr.d("core-web", "ResourceTimingCollector receivedTimings # error: " + e);
+                }
+                return;
+            }
+            mMainHandler.post(() -> {
+                ResourceTimingReport.Listener listener = JoyWeb.getResourceTimingListener();
+                if (listener != null) {
+                    listener.onResourceTiming(report);
+                }
+            });
+        });
+    }
+
+    @WorkerThread
+    private ResourceTimingReport aggregate(int navigationId, String url, String json) throws Exception {
+        JSONObject object = new JSONObject(json);
+        JSONArray n = object.getJSONArray("n");
+        long[] raw = new long[n.length()];
+        for (int i = 0; i < raw.length; i++) {
+            raw[i] = n.optLong(i);
+        }
+        long[] navigation = {
+                span(raw[0], raw[1]),// dns
+                span(raw[2], raw[4]),// connect
+                span(raw[3], raw[4]),// tls
+                span(raw[5], raw[6]),// ttfb
+                span(raw[6], raw[7]),// download
+                raw[8], raw[9], raw[10]
+        };
+
+        JSONArray r = object.getJSONArray("r");
+        List<ResourceTimingReport.Resource> resources = new ArrayList<>(r.length());
+        Map<String, List<ResourceTimingReport.Resource>> byHost = new HashMap<>();
+        for (int i = 0; i < r.length(); i++) {
+            JSONArray entry = r.getJSONArray(i);
+            String name = entry.optString(0);
+            long size = Math.max(entry.optLong(4), entry.optLong(5));// 命中缓存时transferSize为0
+            ResourceTimingReport.Resource resource = new ResourceTimingReport.Resource(name, entry.optString(1),
+                    entry.optLong(2), entry.optLong(3), size);
+            resources.add(resource);
+            String host = Uri.parse(name).getHost();
+            if (host == null) {
+                continue;// data:、blob:等
+            }
+            List<ResourceTimingReport.Resource> list = byHost.get(host);
+            if (list == null) {
+                list = new ArrayList<>();
+                byHost.put(host, list);
+            }
+            list.add(resource);
+        }
+
+        List<ResourceTimingReport.HostStats> hosts = new ArrayList<>(byHost.size());
+        for (Map.Entry<String, List<ResourceTimingReport.Resource>> entry : byHost.entrySet()) {
+            List<ResourceTimingReport.Resource> list = entry.getValue();
+            long[] durations = new long[list.size()];
+            long bytes = 0;
+            for (int i = 0; i < durations.length; i++) {
+                durations[i] = list.get(i).duration;
+                bytes += list.get(i).size;
+            }
+            Arrays.sort(durations);
+            hosts.add(new ResourceTimingReport.HostStats(entry.getKey(), durations.length, bytes,
+                    percentile(durations, 50), percentile(durations, 95)));
+        }
+        Collections.sort(hosts, (h1, h2) -> compare(h2.p95, h1.p95));
+
+        Collections.sort(resources, (r1, r2) -> compare(r2.size, r1.size));
+        List<ResourceTimingReport.Resource> largest = new ArrayList<>(resources.subList(0, Math.min(LARGEST_COUNT, resources.size())));
+
+        return new ResourceTimingReport(navigationId, mEngine, url, navigation, resources.size(),
+                Collections.unmodifiableList(hosts), Collections.unmodifiableList(largest));
+    }
+
+    private static int compare(long l1, long l2) {// Long.compare需要API 19
+        return l1 < l2 ? -1 : (l1 == l2 ? 0 : 1);
+    }
+
+    private static long span(long start, long end) {
+        return start > 0 && end >= start ? end - start : 0;
+    }
+
+    /**
+     * nearest-rank
+     */
+    private static long percentile(long[] sorted, int percent) {
+        int rank = (int) Math.ceil(percent / 100.0 * sorted.length);
+        return sorted[Math.max(rank - 1, 0)];
+    }
+}
@@ -0,0 +1,172 @@
+package com.joy.webview.metrics;
+
+import android.support.annotation.MainThread;
+
+import java.util.List;
+
+/**
+ * 一次页面加载的Navigation Timing和Resource Timing汇总，由{@link ResourceTimingCollector}在后台线程生成。
+ * 时间点都是相对导航开始的毫秒数，阶段耗时为0时表示复用了连接、命中了缓存或浏览器没有提供该数据。
+ * 跨域资源未返回Timing-Allow-Origin时，浏览器不提供大小，按0统计。
+ */
+
+public class ResourceTimingReport {
+
+    private final int mNavigationId;
+    private final String mEngine;
+    private final String mUrl;
+    private final long mDns;
+    private final long mConnect;
+    private final long mTls;
+    private final long mTtfb;
+    private final long mDownload;
+    private final long mDomInteractive;
+    private final long mDomComplete;
+    private final long mLoadEventEnd;
+    private final int mResourceCount;
+    private final List<HostStats> mHosts;
+    private final List<Resource> mLargestResources;
+
+    ResourceTimingReport(int navigationId, String engine, String url, long[] navigation, int resourceCount,
+                         List<HostStats> hosts, List<Resource> largestResources) {
+        mNavigationId = navigationId;
+        mEngine = engine;
+        mUrl = url;
+        mDns = navigation[0];
+        mConnect = navigation[1];
+        mTls = navigation[2];
+        mTtfb = navigation[3];
+        mDownload = navigation[4];
+        mDomInteractive = navigation[5];
+        mDomComplete = navigation[6];
+        mLoadEventEnd = navigation[7];
+        mResourceCount = resourceCount;
+        mHosts = hosts;
+        mLargestResources = largestResources;
+    }
+
+    /**
+     * @return 与{@link PageLoadMetrics#getNavigationId()}对应
+     */
+    public int getNavigationId() {
+        return mNavigationId;
+    }
+
+    public String getEngine() {
+        return mEngine;
+    }
+
+    public String getUrl() {
+        return mUrl;
+    }
+
+    public long getDns() {
+        return mDns;
+    }
+
+    /**
+     * @return 建立连接的耗时，包括{@link #getTls()}
+     */
+    public long getConnect() {
+        return mConnect;
+    }
+
+    public long getTls() {
+        return mTls;
+    }
+
+    /**
+     * @return 从发出请求到收到首字节
+     */
+    public long getTtfb() {
+        return mTtfb;
+    }
+
+    public long getDownload() {
+        return mDownload;
+    }
+
+    public long getDomInteractive() {
+        return mDomInteractive;
+    }
+
+    public long getDomComplete() {
+        return mDomComplete;
+    }
+
+    public long getLoadEventEnd() {
+        return mLoadEventEnd;
+    }
+
+    public int getResourceCount() {
+        return mResourceCount;
+    }
+
+    /**
+     * @return 按域名汇总，p95耗时长的在前
+     */
+    public List<HostStats> getHosts() {
+        return mHosts;
+    }
+
+    /**
+     * @return 体积最大的若干个资源，大的在前
+     */
+    public List<Resource> getLargestResources() {
+        return mLargestResources;
+    }
+
+    @Override
+    public String toString() {
+        return "ResourceTimingReport{id=" + mNavigationId + ", engine=" + mEngine + ", dns=" + mDns + ", connect=" + mConnect + ", tls=" + mTls
+                + ", ttfb=" + mTtfb + ", download=" + mDownload + ", domInteractive=" + mDomInteractive + ", domComplete=" + mDomComplete
+                + ", load=" + mLoadEventEnd + ", resources=" + mResourceCount + ", hosts=" + mHosts + ", largest=" + mLargestResources + ", url=" + mUrl + "}";
+    }
+
+    public static class HostStats {
+        public final String host;
+        public final int count;
+        public final long bytes;
+        public final long p50;
+        public final long p95;
+
+        HostStats(String host, int count, long bytes, long p50, long p95) {
+            this.host = host;
+            this.count = count;
+            this.bytes = bytes;
+            this.p50 = p50;
+            this.p95 = p95;
+        }
+
+        @Override
+        public String toString() {
+            return host + "{count=" + count + ", bytes=" + bytes + ", p50=" + p50 + ", p95=" + p95 + "}";
+        }
+    }
+
+    public static class Resource {
+        public final String url;
+        public final String initiatorType;
+        public final long startTime;
+        public final long duration;
+        public final long size;
+
+        Resource(String url, String initiatorType, long startTime, long duration, long size) {
+            this.url = url;
+            this.initiatorType = initiatorType;
+            this.startTime = startTime;
+            this.duration = duration;
+            this.size = size;
+        }
+
+        @Override
+        public String toString() {
+            return url + "{" + initiatorType + ", size=" + size + ", duration=" + duration + "}";
+        }
+    }
+
+    public interface Listener {
+        @MainThread
+        void onResourceTiming(ResourceTimingReport report);
+    }
+}
@@ -3,7 +3,7 @@ package com.joy.webview.module;
 import android.annotation.SuppressLint;
 import android.app.Activity;
 import android.os.Build;
-import android.view.MotionEvent;
+import android.support.annotation.Nullable;
 import android.view.View;
 import android.webkit.WebSettings;
 import android.webkit.WebView;
@@ -11,13 +11,15 @@ import android.webkit.WebView;
 import com.joy.inject.ActivityScope;
 import com.joy.inject.module.ActivityModule;
 import com.joy.ui.activity.BaseUiActivity;
-import com.joy.ui.view.JWebView;
 import com.joy.utils.DeviceUtil;
 import com.joy.utils.TextUtil;
 import com.joy.webview.JoyWeb;
+import com.joy.webview.pool.PageWebViewRecycler;
+import com.joy.webview.pool.WebViewPool;
 import com.joy.webview.presenter.BaseWebViewPresenter;
 import com.joy.webview.presenter.IPresenter;
 import com.joy.webview.ui.interfaces.BaseViewWeb;
+import com.joy.webview.view.WebKit;
 
 import dagger.Module;
 import dagger.Provides;
@@ -34,10 +36,26 @@ public class BaseWebViewModule {
 
     private final BaseViewWeb mBaseViewWeb;
     private final boolean mCacheEnable;
+    @Nullable
+    private final PageWebViewRecycler mRecycler;
 
     public BaseWebViewModule(BaseViewWeb baseViewWeb, boolean cacheEnable) {
+        this(baseViewWeb, cacheEnable, null);
+    }
+
+    /**
+     * @param recycler 纵向翻页时由翻页Activity提供，WebView从这里取用并交还
+     */
+    public BaseWebViewModule(BaseViewWeb baseViewWeb, boolean cacheEnable, @Nullable PageWebViewRecycler recycler) {
         mBaseViewWeb = baseViewWeb;
         mCacheEnable = cacheEnable;
+        mRecycler = recycler;
+    }
+
+    @Provides
+    @Nullable
+    PageWebViewRecycler providePageWebViewRecycler() {
+        return mRecycler;
     }
 
     @Provides
@@ -62,24 +80,8 @@ public class BaseWebViewModule {
     @ActivityScope
     @SuppressLint("SetJavaScriptEnabled")
     WebView provideWebView(Activity activity) {
-        JWebView webView = new JWebView(activity) {
-            boolean isTouchTriggered = false;
-
-            @Override
-            protected void onScrollChanged(int scrollX, int scrollY, int oldScrollX, int oldScrollY) {
-                if (isTouchTriggered) {
-                    mBaseViewWeb.onScrollChanged(scrollX, scrollY, oldScrollX, oldScrollY);
-                }
-            }
-
-            @Override
-            public boolean onInterceptTouchEvent(MotionEvent event) {
-                if (event.getAction() == MotionEvent.ACTION_DOWN) {
-                    isTouchTriggered = true;
-                }
-                return super.onInterceptTouchEvent(event);
-            }
-        };
+        WebKit webView = mRecycler != null ? mRecycler.obtain(activity) : WebViewPool.obtain(activity);
+        webView.setOnScrollChangedListener(mBaseViewWeb::onScrollChanged);
         WebSettings settings = webView.getSettings();
         settings.setJavaScriptEnabled(true);
         settings.setAllowFileAccess(true);
@@ -3,7 +3,7 @@ package com.joy.webview.module;
 import android.annotation.SuppressLint;
 import android.app.Activity;
 import android.os.Build;
-import android.view.MotionEvent;
+import android.support.annotation.Nullable;
 import android.view.View;
 
 import com.joy.inject.ActivityScope;
@@ -12,6 +12,8 @@ import com.joy.ui.activity.BaseUiActivity;
 import com.joy.utils.DeviceUtil;
 import com.joy.utils.TextUtil;
 import com.joy.webview.JoyWeb;
+import com.joy.webview.pool.PageWebX5Recycler;
+import com.joy.webview.pool.WebX5Pool;
 import com.joy.webview.presenter.BaseWebX5Presenter;
 import com.joy.webview.presenter.IPresenter;
 import com.joy.webview.ui.interfaces.BaseViewWebX5;
@@ -34,10 +36,26 @@ public class BaseWebX5Module {
 
     private final BaseViewWebX5 mBaseViewWebX5;
     private final boolean mCacheEnable;
+    @Nullable
+    private final PageWebX5Recycler mRecycler;
 
     public BaseWebX5Module(BaseViewWebX5 baseViewWebX5, boolean cacheEnable) {
+        this(baseViewWebX5, cacheEnable, null);
+    }
+
+    /**
+     * @param recycler 纵向翻页时由翻页Activity提供，WebView从这里取用并交还
+     */
+    public BaseWebX5Module(BaseViewWebX5 baseViewWebX5, boolean cacheEnable, @Nullable PageWebX5Recycler recycler) {
         mBaseViewWebX5 = baseViewWebX5;
         mCacheEnable = cacheEnable;
+        mRecycler = recycler;
+    }
+
+    @Provides
+    @Nullable
+    PageWebX5Recycler providePageWebX5Recycler() {
+        return mRecycler;
     }
 
     @Provides
@@ -62,24 +80,8 @@ public class BaseWebX5Module {
     @ActivityScope
     @SuppressLint("SetJavaScriptEnabled")
     WebView provideWebView(Activity activity) {
-        WebX5 webView = new WebX5(activity) {
-            boolean isTouchTriggered = false;
-
-            @Override
-            protected void onScrollChanged(int scrollX, int scrollY, int oldScrollX, int oldScrollY) {
-                if (isTouchTriggered) {
-                    mBaseViewWebX5.onScrollChanged(scrollX, scrollY, oldScrollX, oldScrollY);
-                }
-            }
-
-            @Override
-            public boolean onInterceptTouchEvent(MotionEvent event) {
-                if (event.getAction() == MotionEvent.ACTION_DOWN) {
-                    isTouchTriggered = true;
-                }
-                return super.onInterceptTouchEvent(event);
-            }
-        };
+        WebX5 webView = mRecycler != null ? mRecycler.obtain(activity) : WebX5Pool.obtain(activity);
+        webView.setOnScrollChangedListener(mBaseViewWebX5::onScrollChanged);
         WebSettings settings = webView.getSettings();
         settings.setJavaScriptEnabled(true);
         settings.setAllowFileAccess(true);
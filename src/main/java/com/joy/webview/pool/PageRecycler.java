@@ -0,0 +1,84 @@
+package com.joy.webview.pool;
+
+import android.app.Activity;
+import android.support.annotation.MainThread;
+import android.view.View;
+import android.view.ViewGroup;
+
+import com.joy.utils.LogMgr;
+
+import java.util.LinkedList;
+
+/**
+ * 纵向翻页时在同一个Activity内复用WebView：翻出缓存范围的页面把WebView交还这里，新翻入的页面直接取用，
+ * 不需要重新创建渲染进程，也不需要切换Context。由翻页Activity持有，Activity销毁时调用{@link #release()}交还给全局的复用池。
+ * 与内核相关的创建、重置和交还由子类实现。
+ *
+ * @param <W> 内核的WebView类型
+ * @param <T> 可复用的WebView类型
+ */
+
+public abstract class PageRecycler<W extends View, T extends W> {
+
+    private static final int MAX_IDLE = 2;// 缓存范围内的页面各自持有WebView，翻页时只需要一两个空闲的
+
+    private final Class<T> mType;
+    private final LinkedList<T> mIdle = new LinkedList<>();
+    private boolean mReleased;
+
+    PageRecycler(Class<T> type) {
+        mType = type;
+    }
+
+    @MainThread
+    public T obtain(Activity activity) {
+        T webView = mIdle.pollFirst();
+        if (webView == null) {
+            return create(activity);
+        }
+        if (LogMgr.DEBUG) {
+            LogMgr.d("core-web", getClass().getSimpleName() + " obtain # idle: " + mIdle.size());
+        }
+        resume(webView);
+        return webView;
+    }
+
+    /**
+     * 调用前需自行移除添加过的JavascriptInterface。
+     *
+     * @param webView
+     */
+    @MainThread
+    public void recycle(W webView) {
+        if (!mReleased && mType.isInstance(webView) && mIdle.size() < MAX_IDLE) {
+            if (webView.getParent() != null) {
+                ((ViewGroup) webView.getParent()).removeView(webView);
+            }
+            try {
+                T idle = mType.cast(webView);
+                reset(idle);
+                mIdle.addLast(idle);
+                return;
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+        recycleToPool(webView);
+    }
+
+    @MainThread
+    public void release() {
+        mReleased = true;
+        while (!mIdle.isEmpty()) {
+            recycleToPool(mIdle.pollFirst());
+        }
+    }
+
+    abstract T create(Activity activity);
+
+    abstract void resume(T webView);
+
+    abstract void reset(T webView);
+
+    abstract void recycleToPool(W webView);
+}
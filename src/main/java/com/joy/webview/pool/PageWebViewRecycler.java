@@ -0,0 +1,37 @@
+package com.joy.webview.pool;
+
+import android.app.Activity;
+import android.webkit.WebView;
+
+import com.joy.webview.view.WebKit;
+
+/**
+ * 翻页Activity内的{@link WebKit}复用，空闲的WebView最终交还给{@link WebViewPool}。
+ */
+
+public class PageWebViewRecycler extends PageRecycler<WebView, WebKit> {
+
+    public PageWebViewRecycler() {
+        super(WebKit.class);
+    }
+
+    @Override
+    WebKit create(Activity activity) {
+        return WebViewPool.obtain(activity);
+    }
+
+    @Override
+    void resume(WebKit webView) {
+        webView.onResume();
+    }
+
+    @Override
+    void reset(WebKit webView) {
+        WebViewPool.reset(webView);
+    }
+
+    @Override
+    void recycleToPool(WebView webView) {
+        WebViewPool.recycle(webView);
+    }
+}
@@ -0,0 +1,37 @@
+package com.joy.webview.pool;
+
+import android.app.Activity;
+
+import com.joy.webview.view.WebX5;
+import com.tencent.smtt.sdk.WebView;
+
+/**
+ * 翻页Activity内的{@link WebX5}复用，空闲的WebX5最终交还给{@link WebX5Pool}。
+ */
+
+public class PageWebX5Recycler extends PageRecycler<WebView, WebX5> {
+
+    public PageWebX5Recycler() {
+        super(WebX5.class);
+    }
+
+    @Override
+    WebX5 create(Activity activity) {
+        return WebX5Pool.obtain(activity);
+    }
+
+    @Override
+    void resume(WebX5 webView) {
+        webView.onResume();
+    }
+
+    @Override
+    void reset(WebX5 webView) {
+        WebX5Pool.reset(webView);
+    }
+
+    @Override
+    void recycleToPool(WebView webView) {
+        WebX5Pool.recycle(webView);
+    }
+}
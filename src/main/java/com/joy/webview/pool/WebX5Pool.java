@@ -0,0 +1,177 @@
+package com.joy.webview.pool;
+
+import android.app.Activity;
+import android.content.Context;
+import android.content.MutableContextWrapper;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.support.annotation.MainThread;
+import android.view.ViewGroup;
+
+import com.joy.utils.LogMgr;
+import com.joy.webview.JoyWeb;
+import com.joy.webview.utils.UriUtils;
+import com.joy.webview.view.WebX5;
+import com.tencent.smtt.sdk.WebChromeClient;
+import com.tencent.smtt.sdk.WebView;
+import com.tencent.smtt.sdk.WebViewClient;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+
+/**
+ * 腾讯X5 WebView复用池，所有方法都必须在主线程调用。
+ * X5内核初始化完成后由{@link com.joy.webview.JoyWeb#initX5Environment}触发预创建。
+ * WebView统一以{@link MutableContextWrapper}创建，取出时绑定到宿主Activity，回收后绑定回ApplicationContext。
+ */
+
+public class WebX5Pool {
+
+    private static final LinkedList<Entry> sIdleEntries = new LinkedList<>();
+    private static final Handler sHandler = new Handler(Looper.getMainLooper());
+    private static final Runnable sTrimRunnable = WebX5Pool::trim;
+    private static Context sAppContext;
+
+    /**
+     * 在主线程空闲时预先创建WebView，直到填满复用池。
+     *
+     * @param appContext
+     */
+    public static void prepare(Context appContext) {
+        sAppContext = appContext.getApplicationContext();
+        sHandler.post(() -> Looper.myQueue().addIdleHandler(() -> {
+            if (sIdleEntries.size() >= JoyWeb.getWebX5PoolSize()) {
+                return false;
+            }
+            offer(create(sAppContext));
+            return sIdleEntries.size() < JoyWeb.getWebX5PoolSize();
+        }));
+    }
+
+    @MainThread
+    public static WebX5 obtain(Activity activity) {
+        trim();
+        Entry entry = sIdleEntries.pollFirst();
+        if (entry == null) {
+            return create(activity);
+        }
+        if (LogMgr.DEBUG) {
+            LogMgr.d("core-web", "WebX5Pool obtain # idle: " + sIdleEntries.size());
+        }
+        WebX5 webView = entry.webView;
+        ((MutableContextWrapper) webView.getContext()).setBaseContext(activity);
+        webView.onResume();
+        return webView;
+    }
+
+    /**
+     * 重置WebView的状态并放回复用池，复用池已满或未开启时直接销毁。
+     * 调用前需自行移除添加过的JavascriptInterface。
+     *
+     * @param webView
+     */
+    @MainThread
+    public static void recycle(WebView webView) {
+        if (webView.getParent() != null) {
+            // Note: Make sure you remove the webview from its parent view before doing anything.
+            ((ViewGroup) webView.getParent()).removeView(webView);
+        }
+        if (webView instanceof WebX5
+                && webView.getContext() instanceof MutableContextWrapper
+                && sIdleEntries.size() < JoyWeb.getWebX5PoolSize()) {
+            try {
+                reset((WebX5) webView);
+                webView.clearCache(false);// only the RAM cache is cleared.
+                ((MutableContextWrapper) webView.getContext()).setBaseContext(webView.getContext().getApplicationContext());
+                offer((WebX5) webView);
+                return;
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+        destroy(webView);
+    }
+
+    public static int getIdleCount() {
+        return sIdleEntries.size();
+    }
+
+    public static void clear() {
+        sHandler.removeCallbacks(sTrimRunnable);
+        while (!sIdleEntries.isEmpty()) {
+            destroy(sIdleEntries.pollFirst().webView);
+        }
+    }
+
+    private static WebX5 create(Context context) {
+        WebX5 webView = new WebX5(new MutableContextWrapper(context));
+        webView.getDefaultUserAgent();
+        return webView;
+    }
+
+    private static void offer(WebX5 webView) {
+        sIdleEntries.addLast(new Entry(webView));
+        if (sIdleEntries.size() == 1) {
+            sHandler.postDelayed(sTrimRunnable, JoyWeb.getWebX5PoolIdleTimeout());
+        }
+    }
+
+    /**
+     * 重置页面和回调，{@link PageWebX5Recycler}在同一个Activity内复用时也会调用。
+     */
+    static void reset(WebX5 webView) {
+        webView.stopLoading();
+        webView.onRecycled();
+        webView.setOnLongClickListener(null);
+        webView.setDownloadListener(null);
+        webView.setWebChromeClient(new WebChromeClient());
+        webView.setWebViewClient(new WebViewClient());
+        webView.getSettings().setUserAgentString(webView.getDefaultUserAgent());
+        webView.clearHistory();
+        webView.loadUrl(UriUtils.URL_BLANK);
+        webView.onPause();
+    }
+
+    private static void trim() {
+        long now = SystemClock.elapsedRealtime();
+        Iterator<Entry> iterator = sIdleEntries.iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (now - entry.idleSince >= JoyWeb.getWebX5PoolIdleTimeout()
+                    || sIdleEntries.size() > JoyWeb.getWebX5PoolSize()) {
+                iterator.remove();
+                destroy(entry.webView);
+            }
+        }
+        sHandler.removeCallbacks(sTrimRunnable);
+        if (!sIdleEntries.isEmpty()) {
+            long delay = sIdleEntries.getFirst().idleSince + JoyWeb.getWebX5PoolIdleTimeout() - now;
+            sHandler.postDelayed(sTrimRunnable, Math.max(delay, 0));
+        }
+    }
+
+    static void destroy(WebView webView) {
+        try {
+            webView.clearHistory();
+            webView.clearCache(false);// only the RAM cache is cleared.
+            webView.loadUrl(UriUtils.URL_BLANK);// Loading a blank page is optional, but will ensure that the webview isn't doing anything when you destory it.
+            webView.onPause();
+            webView.removeAllViews();
+            webView.destroyDrawingCache();
+            webView.destroy();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static class Entry {
+        final WebX5 webView;
+        final long idleSince;
+
+        Entry(WebX5 webView) {
+            this.webView = webView;
+            this.idleSince = SystemClock.elapsedRealtime();
+        }
+    }
+}
@@ -4,47 +4,71 @@ import android.annotation.SuppressLint;
 import android.annotation.TargetApi;
 import android.graphics.Bitmap;
 import android.net.Uri;
+import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.annotation.WorkerThread;
 import android.view.View;
-import android.view.ViewGroup;
 import android.webkit.ConsoleMessage;
+import android.webkit.CookieManager;
 import android.webkit.JavascriptInterface;
 import android.webkit.ValueCallback;
 import android.webkit.WebBackForwardList;
 import android.webkit.WebChromeClient;
 import android.webkit.WebHistoryItem;
+import android.webkit.WebResourceRequest;
 import android.webkit.WebResourceResponse;
 import android.webkit.WebSettings;
 import android.webkit.WebView;
 import android.webkit.WebViewClient;
 
 import com.joy.inject.ActivityScope;
+import com.joy.utils.LogMgr;
 import com.joy.utils.TextUtil;
 import com.joy.webview.JoyWeb;
 import com.joy.webview.R;
+import com.joy.webview.cache.MetadataCache;
+import com.joy.webview.cache.OfflinePackageManager;
+import com.joy.webview.cache.ResourceCache;
+import com.joy.webview.metrics.PageLoadMetrics;
+import com.joy.webview.metrics.ResourceTimingCollector;
+import com.joy.webview.pool.PageWebViewRecycler;
+import com.joy.webview.pool.WebViewPool;
 import com.joy.webview.ui.interfaces.BaseViewWeb;
+import com.joy.webview.utils.CookieSeeder;
 import com.joy.webview.utils.DocumentParser;
+import com.joy.webview.utils.ExtractionResult;
+import com.joy.webview.utils.ExtractionSpec;
+import com.joy.webview.utils.HtmlStreamParser;
+import com.joy.webview.utils.IndexedDocument;
+import com.joy.webview.utils.Navigation;
+import com.joy.webview.utils.NavigationTracker;
 import com.joy.webview.utils.PayIntercepter;
+import com.joy.webview.utils.RetryPolicy;
 import com.joy.webview.utils.TimeoutHandler;
 import com.joy.webview.utils.UriUtils;
+import com.joy.webview.view.WebKit;
 import com.trello.rxlifecycle.android.ActivityEvent;
 import com.trello.rxlifecycle.android.FragmentEvent;
 
-import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
 
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.inject.Inject;
 
+import static android.os.Build.VERSION.SDK_INT;
 import static android.os.Build.VERSION_CODES.HONEYCOMB;
 import static android.os.Build.VERSION_CODES.JELLY_BEAN;
 import static android.os.Build.VERSION_CODES.LOLLIPOP;
-import static com.joy.webview.utils.TimeoutHandler.WHAT_TIMEOUT_ERROR;
+import static android.os.Build.VERSION_CODES.M;
+import static android.webkit.WebViewClient.ERROR_TIMEOUT;
 
 /**
  * Created by Daisw on 16/8/14.
@@ -60,17 +84,40 @@ public class BaseWebViewPresenter implements IPresenter {
     @Inject
     BaseViewWeb mBaseView;
 
+    @Inject
+    @Nullable
+    PageWebViewRecycler mRecycler;// 纵向翻页时不为null
+
     private String mTempUrl;
-    private Document mDocument;
-    private boolean mIsError;
+    private IndexedDocument mDocument;
     private boolean mNeedSeedCookie;
-    private Map<String, Boolean> mPageFinished;
+    private NavigationTracker mNavigationTracker;
     private TimeoutHandler mTimerHandler;
+    private HtmlStreamParser mHtmlStreamParser;
+    private ExtractionSpec mExtractionSpec;
+    private ExtractionResult mExtraction;
+    private boolean mPageLoaded;// 当前页面是否已加载完成
+    private boolean mCapturing;// 是否正在获取Document
+    private boolean mFinishPending;// 获取完成后是否需要回调onPageFinished
+    private boolean mHistoryNavigation;// 即将开始的导航是否为前进/后退
+    private boolean mPageFromHistory;// 当前页面是否由前进/后退打开，只有这时才使用缓存的元数据
+    private List<DocumentCallback> mDocumentCallbacks;
+    private String mRetryUrl;// 可以自动重试的URL，只有通过load发起的GET请求才能安全地重试
+    private int mRetryCount;
+    private final Runnable mRetryRunnable = this::retry;
+    private volatile PageLoadMetrics mMetrics;// 当前导航的耗时记录，种Cookie的页面不记录
+    private final AtomicReference<OfflinePackageManager.Holder> mOfflinePackages = new AtomicReference<>();// 页面使用的离线包，每次load时更新
+    private volatile boolean mDestroyed;
+    private ResourceTimingCollector mTimingCollector;// 设置了JoyWeb.setResourceTimingListener时才创建
 
     @Inject
     BaseWebViewPresenter() {
-        mPageFinished = new HashMap<>();
+        mNavigationTracker = new NavigationTracker();
+        mDocumentCallbacks = new ArrayList<>();
         mTimerHandler = new TimeoutHandler(this);
+        mHtmlStreamParser = new HtmlStreamParser(this::onReceivedDocument);
+        mHtmlStreamParser.setOnExtractedListener(this::onReceivedExtraction);
+        mHtmlStreamParser.setOnTimeoutListener(this::onCaptureTimeout);
     }
 
     @Inject
@@ -78,15 +125,29 @@ public class BaseWebViewPresenter implements IPresenter {
         mWebView.setWebViewClient(new WebViewClient() {
             @Override
             public void onPageStarted(WebView webView, String url, Bitmap favicon) {
-                addTimeoutMessage();
-                String prevUrl = webView.getUrl();
-                boolean isRedirected = !isPageFinished(prevUrl);
-                // 如果initialUrl被重定向了，则跳出方法体。
-                if (isRedirected) {// TODO: 2016/11/11 经测试只能捕捉首次打开的URL，页面内跳转时的重定向捕捉不到。
+                if (UriUtils.isBlank(url)) {// 复用的WebView在回收时加载的空白页
+                    return;
+                }
+                Navigation navigation = mNavigationTracker.onPageStarted(url);
+                if (navigation == null) {// 当前导航的重定向，不再重复计时、显示loading和获取Document
+                    if (LogMgr.DEBUG) {
+                        LogMgr.d("core-web", "BaseWebViewPresenter onPageStarted # redirect " + mNavigationTracker.getCurrent());
+                    }
                     return;
                 }
-                mPageFinished.put(url, false);
-                mIsError = false;
+                if (!mNeedSeedCookie && !url.equals(mRetryUrl)) {// 页面内发起的导航，可能是POST，不再自动重试
+                    mRetryUrl = null;
+                }
+                reportMetrics();// 上一个导航没有结束就被取代
+                mMetrics = mNeedSeedCookie ? null : new PageLoadMetrics(navigation, PageLoadMetrics.ENGINE_WEBVIEW, mRetryUrl != null ? mRetryCount : 0);
+                addTimeoutMessage(navigation.getId());
+                mHtmlStreamParser.cancel();// 丢弃上一个页面未完成的解析
+                mDocument = null;
+                mExtraction = null;
+                mPageLoaded = false;
+                mPageFromHistory = false;
+                mCapturing = false;
+                mFinishPending = false;
                 mBaseView.hideTipView();
                 if (!mBaseView.isProgressEnabled()) {
                     mBaseView.hideContent();
@@ -105,6 +166,7 @@ public class BaseWebViewPresenter implements IPresenter {
                 removeTimeoutMessage();
                 if (mNeedSeedCookie) {
                     mNeedSeedCookie = false;
+                    mNavigationTracker.expect();
                     mWebView.loadUrl(mTempUrl);
                 } else {
                     switchErrorView(errorCode, description, failingUrl);
@@ -116,28 +178,56 @@ public class BaseWebViewPresenter implements IPresenter {
                 if (isHostFinishing()) {
                     return;
                 }
-                removeTimeoutMessage();
-                mPageFinished.put(url, true);
+                if (UriUtils.isBlank(url)) {
+                    return;
+                }
+                if (webView instanceof WebKit && ((WebKit) webView).consumeClearHistoryPending()) {
+                    webView.clearHistory();
+                }
                 if (!url.equals(webView.getUrl())) {// 如果当前URL和webview所持有的URL不一致时，抛掉当前URL的回调，跳出方法体。
                     return;
                 }
+                mNavigationTracker.onPageFinished(url);// 服务端重定向可能只回调了起始URL的onPageStarted
                 if (mNeedSeedCookie) {
+                    removeTimeoutMessage();
                     mNeedSeedCookie = false;
                     JoyWeb.setCookieSeeded(true);
+                    mNavigationTracker.expect();
                     mWebView.loadUrl(mTempUrl);
-                } else if (!mIsError) {
+                } else if (!mNavigationTracker.isFailed()) {
                     if (mWebView.copyBackForwardList().getCurrentIndex() == -1) {
                         return;
                     }
+                    if (!mNavigationTracker.moveTo(Navigation.STATE_FINISHED)) {// 同一次导航只处理一次
+                        return;
+                    }
+                    if (mMetrics != null) {
+                        mMetrics.onFinished();
+                    }
+                    removeTimeoutMessage();
                     if (!mBaseView.isProgressEnabled()) {
                         mBaseView.hideLoading();
                     }
                     mBaseView.hideTipView();
                     mBaseView.showContent();
-                    getHtmlByTagName("html", 0);
+                    onPageLoaded();
                 }
             }
 
+            @Override
+            @TargetApi(M)
+            public void onPageCommitVisible(WebView webView, String url) {
+                if (mNavigationTracker.moveTo(Navigation.STATE_COMMITTED) && mMetrics != null) {
+                    mMetrics.onCommitted();
+                }
+                onContentVisible();
+            }
+
+            @Override
+            public void onLoadResource(WebView webView, String url) {
+                mTimerHandler.onLoadResource();
+            }
+
             @Override
             public boolean shouldOverrideUrlLoading(WebView webView, String url) {
                 if (PayIntercepter.interceptPayIntent(webView.getContext(), url)) {
@@ -159,7 +249,26 @@ public class BaseWebViewPresenter implements IPresenter {
 //                if (LogMgr.DEBUG) {
 //                    LogMgr.d("core-web", "BaseWebViewPresenter shouldInterceptRequest # url " + url);
 //                }
-                return mBaseView.onInterceptRequest(webView, url);
+                WebResourceResponse response = mBaseView.onInterceptRequest(webView, url);
+                if (response == null) {// 取不到请求头，不使用资源缓存
+                    response = toWebResourceResponse(resolveOffline(url));
+                }
+                return response;
+            }
+
+            @Override
+            @TargetApi(LOLLIPOP)
+            public WebResourceResponse shouldInterceptRequest(WebView webView, WebResourceRequest request) {
+                String url = request.getUrl().toString();
+                WebResourceResponse response = mBaseView.onInterceptRequest(webView, url);
+                if (response == null) {
+                    ResourceCache.Resource resource = resolveOffline(url);
+                    if (resource == null && "GET".equalsIgnoreCase(request.getMethod())) {
+                        resource = ResourceCache.load(url, getRequestHeaders(url, request.getRequestHeaders()));
+                    }
+                    response = toWebResourceResponse(resource);
+                }
+                return response;
             }
         });
         mWebView.setWebChromeClient(new WebChromeClient() {
@@ -178,13 +287,23 @@ public class BaseWebViewPresenter implements IPresenter {
                 if (isHostFinishing()) {
                     return;
                 }
-                if (!mIsError && !mNeedSeedCookie) {
+                if (mNavigationTracker.moveTo(Navigation.STATE_COMMITTED) && mMetrics != null) {
+                    mMetrics.onCommitted();
+                }
+                if (!mNavigationTracker.isFailed() && !mNeedSeedCookie) {
                     mBaseView.onReceivedTitle(webView, title);
                 }
             }
 
             @Override
             public void onProgressChanged(WebView webView, int newProgress) {
+                boolean visible = mTimerHandler.onProgressChanged(newProgress, webView.getContentHeight());
+                if (mMetrics != null) {
+                    mMetrics.onProgress();
+                }
+                if (visible) {
+                    onContentVisible();
+                }
                 if (!mNeedSeedCookie) {
                     mBaseView.onProgress(webView, newProgress);
                 }
@@ -221,15 +340,27 @@ public class BaseWebViewPresenter implements IPresenter {
             @WorkerThread
             @Override
             public void receivedHtml(final String html) {
-//                mWebView.post(() -> onReceivedHtml(html));
-                mWebView.post(new Runnable() {
-                    @Override
-                    public void run() {
-                        onReceivedHtml(html);
-                    }
-                });
+                mHtmlStreamParser.feed(html);
+            }
+
+            @JavascriptInterface
+            @WorkerThread
+            @Override
+            public void receivedHtmlChunk(int sequence, int index, int count, String chunk) {
+                mHtmlStreamParser.feed(sequence, index, count, chunk);
+            }
+
+            @JavascriptInterface
+            @WorkerThread
+            @Override
+            public void receivedFragments(int sequence, String json) {
+                mHtmlStreamParser.feedFragments(sequence, json);
             }
         }, "htmlSource");
+        if (JoyWeb.getResourceTimingListener() != null) {
+            mTimingCollector = new ResourceTimingCollector(PageLoadMetrics.ENGINE_WEBVIEW);
+            mWebView.addJavascriptInterface(mTimingCollector, ResourceTimingCollector.JS_NAME);
+        }
     }
 
     @Override
@@ -271,29 +402,234 @@ public class BaseWebViewPresenter implements IPresenter {
         }
     }
 
-    private boolean isPageFinished(String url) {
-        Boolean b = mPageFinished.get(url);
-        return b == null || b;
+    /**
+     * 每次导航只计时一次，消息中带上导航的id，过期的消息不会影响之后的导航。
+     */
+    private void addTimeoutMessage(int navigationId) {
+        mTimerHandler.start(navigationId);
     }
 
-    private void addTimeoutMessage() {
-        removeTimeoutMessage();
-        mTimerHandler.sendEmptyMessageDelayed(WHAT_TIMEOUT_ERROR, JoyWeb.getTimeoutDuration());
+    private void removeTimeoutMessage() {
+        mTimerHandler.stop();
     }
 
-    private void removeTimeoutMessage() {
-        mTimerHandler.removeMessages(WHAT_TIMEOUT_ERROR);
+    /**
+     * {@link JoyWeb#TIMEOUT_FIRST_VISIBLE}模式下，内容显示后不再等待onPageFinished，直接显示内容。
+     */
+    private void onContentVisible() {
+        if (mNeedSeedCookie || mNavigationTracker.isFailed()) {
+            return;
+        }
+        if (mMetrics != null) {
+            mMetrics.onVisible();
+        }
+        if (!mTimerHandler.onContentVisible()) {
+            return;
+        }
+        if (!mBaseView.isProgressEnabled()) {
+            mBaseView.hideLoading();
+        }
+        mBaseView.hideTipView();
+        mBaseView.showContent();
+    }
+
+    @Nullable
+    @WorkerThread
+    private ResourceCache.Resource resolveOffline(String url) {
+        OfflinePackageManager.Holder holder = mOfflinePackages.get();
+        if (holder == null && !mDestroyed) {
+            holder = OfflinePackageManager.acquire();
+            if (!mOfflinePackages.compareAndSet(null, holder)) {
+                holder.release();
+                holder = mOfflinePackages.get();
+            } else if (mDestroyed) {// 期间已销毁
+                releaseOfflinePackages();
+            }
+        }
+        return holder == null ? null : holder.resolve(url);
+    }
+
+    private void releaseOfflinePackages() {
+        OfflinePackageManager.Holder holder = mOfflinePackages.getAndSet(null);
+        if (holder != null) {
+            holder.release();
+        }
     }
 
-    private void onReceivedHtml(String html) {
-        mDocument = Jsoup.parse(html);
+    @Nullable
+    private WebResourceResponse toWebResourceResponse(@Nullable ResourceCache.Resource resource) {
+        if (resource == null) {
+            return null;
+        }
+        PageLoadMetrics metrics = mMetrics;
+        InputStream data = metrics != null ? metrics.onIntercepted(resource.data) : resource.data;
+        WebResourceResponse response = new WebResourceResponse(resource.mimeType, resource.encoding, data);
+        if (SDK_INT >= LOLLIPOP && !resource.headers.isEmpty()) {
+            response.setResponseHeaders(resource.headers);
+        }
+        return response;
+    }
+
+    /**
+     * 请求头中不含Cookie，从内核的CookieManager中补上。
+     */
+    private Map<String, String> getRequestHeaders(String url, @Nullable Map<String, String> requestHeaders) {
+        Map<String, String> headers = requestHeaders == null ? new HashMap<>() : new HashMap<>(requestHeaders);
+        String cookie = CookieManager.getInstance().getCookie(url);
+        if (TextUtil.isNotEmpty(cookie)) {
+            headers.put("Cookie", cookie);
+        }
+        return headers;
+    }
+
+    /**
+     * 正在获取Document时，等获取结束再上报耗时，使上报中包含获取和解析的耗时。
+     */
+    private void dispatchPageFinished() {
         mBaseView.onPageFinished(getUrl());
+        if (!mCapturing) {
+            reportMetrics();
+        }
+    }
+
+    private void reportMetrics() {
+        if (mMetrics != null) {
+            mMetrics.report();
+        }
+    }
+
+    private void onPageLoaded() {
+        mPageLoaded = true;
+        if (mTimingCollector != null) {
+            mWebView.loadUrl(mTimingCollector.getScript(getNavigationId()));
+        }
+        boolean historyNavigation = mHistoryNavigation;
+        mHistoryNavigation = false;
+        mPageFromHistory = historyNavigation;
+        if (mExtractionSpec != null && !mExtractionSpec.isDocumentRequired()) {
+            ExtractionResult cached = historyNavigation ? MetadataCache.get(getUrl()) : null;
+            if (cached != null && cached.covers(mExtractionSpec)) {// 前进/后退时复用缓存的元数据，不再注入JS
+                mExtraction = cached;
+                dispatchPageFinished();
+            } else {
+                mFinishPending = true;
+                if (mMetrics != null) {
+                    mMetrics.onCaptureStarted();
+                }
+                mWebView.loadUrl(mExtractionSpec.toScript(mHtmlStreamParser.begin()));
+            }
+        } else if (JoyWeb.isDocumentCaptureEager()) {
+            mFinishPending = true;
+            captureDocument();
+        } else {
+            if (!mDocumentCallbacks.isEmpty()) {
+                captureDocument();
+            }
+            dispatchPageFinished();
+        }
+    }
+
+    /**
+     * 懒加载模式下，首次访问Document时才从页面获取HTML。
+     */
+    private void requestDocumentIfNecessary() {
+        if (mDocument == null && mPageLoaded && !mFinishPending) {
+            captureDocument();
+        }
+    }
+
+    private void captureDocument() {
+        if (mCapturing || mWebView == null) {
+            return;
+        }
+        mCapturing = true;
+        if (mMetrics != null) {
+            mMetrics.onCaptureStarted();
+        }
+        getHtmlByTagName("html", 0);
+    }
+
+    private void onReceivedDocument(IndexedDocument document) {
+        if (mWebView == null) {
+            return;
+        }
+        mCapturing = false;
+        mDocument = document;
+        if (mMetrics != null) {
+            mMetrics.onCaptured(mHtmlStreamParser.getLastParseDuration());
+        }
+        if (!mDocumentCallbacks.isEmpty()) {
+            List<DocumentCallback> callbacks = new ArrayList<>(mDocumentCallbacks);
+            mDocumentCallbacks.clear();
+            for (DocumentCallback callback : callbacks) {
+                callback.onDocumentReady(document.getDocument());
+            }
+        }
+        if (mFinishPending) {
+            mFinishPending = false;
+            dispatchPageFinished();
+        } else if (mPageLoaded) {
+            reportMetrics();
+        }
+    }
+
+    private void onReceivedExtraction(ExtractionResult extraction) {
+        if (mWebView == null) {
+            return;
+        }
+        mExtraction = extraction;
+        if (mMetrics != null) {
+            mMetrics.onCaptured(-1);
+        }
+        if (extraction != null) {
+            MetadataCache.put(getUrl(), extraction);
+        }
+        if (!mDocumentCallbacks.isEmpty()) {
+            captureDocument();
+        }
+        if (mFinishPending) {
+            mFinishPending = false;
+            dispatchPageFinished();
+        }
+    }
+
+    /**
+     * 注入的JS出错或分块丢失时不会回调，超时后结束本次获取，等待中的回调收到null，不再阻塞onPageFinished。
+     */
+    private void onCaptureTimeout() {
+        if (mWebView == null) {
+            return;
+        }
+        if (LogMgr.DEBUG) {
+            LogMgr.d("core-web", "BaseWebViewPresenter onCaptureTimeout # " + getUrl());
+        }
+        mCapturing = false;
+        if (!mDocumentCallbacks.isEmpty()) {
+            List<DocumentCallback> callbacks = new ArrayList<>(mDocumentCallbacks);
+            mDocumentCallbacks.clear();
+            for (DocumentCallback callback : callbacks) {
+                callback.onDocumentReady(null);
+            }
+        }
+        if (mFinishPending) {
+            mFinishPending = false;
+            dispatchPageFinished();
+        } else if (mPageLoaded) {
+            reportMetrics();
+        }
     }
 
     @SuppressLint("DefaultLocale")
     private void getHtmlByTagName(String tag, int index) {
-        String format = "javascript:window.htmlSource.receivedHtml(document.getElementsByTagName('%s')[%d].outerHTML);";
-        mWebView.loadUrl(String.format(format, tag, index));
+        if (JoyWeb.isHtmlStreamEnabled()) {
+            // 分块推送，避免一次性通过JavascriptInterface传递整页的HTML
+            String format = "javascript:(function(){var h=document.getElementsByTagName('%s')[%d].outerHTML,s=%d,n=Math.max(Math.ceil(h.length/s),1);" +
+                    "for(var i=0;i<n;i++){window.htmlSource.receivedHtmlChunk(%d,i,n,h.substring(i*s,(i+1)*s));}})();";
+            mWebView.loadUrl(String.format(format, tag, index, JoyWeb.getHtmlStreamChunkSize(), mHtmlStreamParser.begin()));
+        } else {
+            String format = "javascript:window.htmlSource.receivedHtmlChunk(%d,0,1,document.getElementsByTagName('%s')[%d].outerHTML);";
+            mWebView.loadUrl(String.format(format, mHtmlStreamParser.begin(), tag, index));
+        }
     }
 
     @Override
@@ -304,37 +640,107 @@ public class BaseWebViewPresenter implements IPresenter {
         }
     }
 
+    @Nullable
+    private IndexedDocument getIndexedDocument() {
+        requestDocumentIfNecessary();
+        return mDocument;
+    }
+
+    @Nullable
     @Override
     public Document getDocument() {
-        return mDocument;
+        IndexedDocument document = getIndexedDocument();
+        return document == null ? null : document.getDocument();
+    }
+
+    @Override
+    public void getDocument(@NonNull DocumentCallback callback) {
+        if (mDocument != null) {
+            callback.onDocumentReady(mDocument.getDocument());
+            return;
+        }
+        mDocumentCallbacks.add(callback);
+        requestDocumentIfNecessary();
     }
 
     @Nullable
     @Override
     public Elements getElementsByTag(String tagName) {
-        return DocumentParser.getElementsByTag(mDocument, tagName);
+        return DocumentParser.getElementsByTag(getIndexedDocument(), tagName);
     }
 
     @Nullable
     @Override
     public Element getElementByTag(String tagName, int index) {
-        return DocumentParser.getElementByTag(mDocument, tagName, index);
+        return DocumentParser.getElementByTag(getIndexedDocument(), tagName, index);
     }
 
     @Nullable
     @Override
     public Element getFirstElementByTag(String tagName) {
-        return DocumentParser.getFirstElementByTag(mDocument, tagName);
+        return DocumentParser.getFirstElementByTag(getIndexedDocument(), tagName);
     }
 
     @Override
     public String getTag(String tagName) {
-        return DocumentParser.getTag(mDocument, tagName);
+        String tag = mExtraction == null ? null : mExtraction.getTag(tagName);
+        if (tag == null && mDocument == null && mPageFromHistory) {// 前进/后退时优先用缓存，其余情况以当前页面为准
+            ExtractionResult cached = MetadataCache.get(getUrl());
+            tag = cached == null ? null : cached.getTag(tagName);
+        }
+        if (tag == null) {
+            IndexedDocument document = getIndexedDocument();
+            tag = DocumentParser.getTag(document, tagName);
+            if (document != null) {
+                MetadataCache.obtain(getUrl()).putTag(tagName, tag);
+            }
+        }
+        return tag;
     }
 
     @Override
     public String getAttribute(String attrName, String attrValue, String attributeKey) {
-        return DocumentParser.getAttribute(mDocument, attrName, attrValue, attributeKey);
+        String attr = mExtraction == null ? null : mExtraction.getAttribute(attrName, attrValue, attributeKey);
+        if (attr == null && mDocument == null && mPageFromHistory) {// 前进/后退时优先用缓存，其余情况以当前页面为准
+            ExtractionResult cached = MetadataCache.get(getUrl());
+            attr = cached == null ? null : cached.getAttribute(attrName, attrValue, attributeKey);
+        }
+        if (attr == null) {
+            IndexedDocument document = getIndexedDocument();
+            attr = DocumentParser.getAttribute(document, attrName, attrValue, attributeKey);
+            if (document != null) {
+                MetadataCache.obtain(getUrl()).putAttribute(attrName, attrValue, attributeKey, attr);
+            }
+        }
+        return attr;
+    }
+
+    @Override
+    public String getSelection(String cssQuery, @Nullable String attributeKey) {
+        String selection = mExtraction == null ? null : mExtraction.getSelection(cssQuery, attributeKey);
+        if (selection == null && mDocument == null && mPageFromHistory) {// 前进/后退时优先用缓存，其余情况以当前页面为准
+            ExtractionResult cached = MetadataCache.get(getUrl());
+            selection = cached == null ? null : cached.getSelection(cssQuery, attributeKey);
+        }
+        if (selection == null) {
+            IndexedDocument document = getIndexedDocument();
+            selection = DocumentParser.getSelection(document, cssQuery, attributeKey);
+            if (document != null) {
+                MetadataCache.obtain(getUrl()).putSelection(cssQuery, attributeKey, selection);
+            }
+        }
+        return selection;
+    }
+
+    @Override
+    public void setExtractionSpec(@Nullable ExtractionSpec spec) {
+        mExtractionSpec = spec;
+    }
+
+    @Nullable
+    @Override
+    public ExtractionResult getExtraction() {
+        return mExtraction;
     }
 
     @Override
@@ -376,28 +782,66 @@ public class BaseWebViewPresenter implements IPresenter {
     }
 
     public void onDestroy() {
-        if (mWebView.getParent() != null) {
-            // Note: Make sure you remove the webview from its parent view before doing anything.
-            ((ViewGroup) mWebView.getParent()).removeView(mWebView);
+        mDestroyed = true;
+        releaseOfflinePackages();
+        reportMetrics();
+        removeTimeoutMessage();
+        mTimerHandler.removeCallbacks(mRetryRunnable);
+        mHtmlStreamParser.cancel();
+        mDocumentCallbacks.clear();
+        mWebView.removeJavascriptInterface("htmlSource");
+        if (mTimingCollector != null) {
+            mWebView.removeJavascriptInterface(ResourceTimingCollector.JS_NAME);
+        }
+        if (mRecycler != null) {
+            mRecycler.recycle(mWebView);
+        } else {
+            WebViewPool.recycle(mWebView);
         }
-        mWebView.clearHistory();
-        mWebView.clearCache(false);// only the RAM cache is cleared.
-        mWebView.loadUrl("about:blank");// Loading a blank page is optional, but will ensure that the webview isn't doing anything when you destory it.
-        mWebView.onPause();
-        mWebView.removeAllViews();
-        mWebView.destroyDrawingCache();
-        mWebView.destroy();
         mWebView = null;
     }
 
+    @Nullable
+    @Override
+    public PageLoadMetrics getPageLoadMetrics() {
+        return mMetrics;
+    }
+
+    @Override
+    public int getNavigationId() {
+        return mNavigationTracker.getCurrentId();
+    }
+
     @Override
     public void stopLoading() {
         mWebView.stopLoading();
     }
 
+    @Override
+    public void cancelLoading() {
+        removeTimeoutMessage();
+        mTimerHandler.removeCallbacks(mRetryRunnable);
+        mRetryUrl = null;
+        mNeedSeedCookie = false;
+        mTempUrl = null;
+        stopLoading();
+    }
+
     @Override
     public void switchErrorView(int errorCode, String description, String failingUrl) {
-        mIsError = true;
+        mNavigationTracker.moveTo(errorCode == ERROR_TIMEOUT ? Navigation.STATE_TIMEOUT : Navigation.STATE_ERROR);
+        if (mMetrics != null) {
+            mMetrics.onFailed(errorCode);
+        }
+        if (mRetryUrl != null && RetryPolicy.canRetry(mRetryCount, errorCode)) {// 保持loading，稍后自动重试，由最后一次的导航上报耗时
+            long delay = RetryPolicy.getDelay(mRetryCount++);
+            if (LogMgr.DEBUG) {
+                LogMgr.d("core-web", "BaseWebViewPresenter switchErrorView # retry " + mRetryCount + " in " + delay + "ms, errorCode: " + errorCode + " url: " + failingUrl);
+            }
+            mTimerHandler.postDelayed(mRetryRunnable, delay);
+            return;
+        }
+        reportMetrics();
         if (!mBaseView.isProgressEnabled()) {
             mBaseView.hideLoading();
         }
@@ -409,17 +853,49 @@ public class BaseWebViewPresenter implements IPresenter {
     @Override
     public void load(String url) {
         if (TextUtil.isNotEmpty(url)) {
+            mHistoryNavigation = false;
+            mTimerHandler.removeCallbacks(mRetryRunnable);
+            mRetryUrl = url;
+            mRetryCount = 0;
+            releaseOfflinePackages();// 新的加载使用最新的离线包
             String cookieUrl = JoyWeb.getCookieUrl();
-            mNeedSeedCookie = TextUtil.isNotEmpty(cookieUrl) && !JoyWeb.isCookieSeeded();
-            if (mNeedSeedCookie) {
+            boolean needSeedCookie = TextUtil.isNotEmpty(cookieUrl) && !JoyWeb.isCookieSeeded();
+            if (needSeedCookie && JoyWeb.getCookieSeedMode() == JoyWeb.COOKIE_SEED_BACKGROUND) {
+                mNeedSeedCookie = false;
                 mTempUrl = url;
+                if (!mBaseView.isProgressEnabled()) {
+                    mBaseView.hideContent();
+                    mBaseView.showLoading();
+                }
+                CookieSeeder.await(cookieUrl, JoyWeb.getCookieSeedTimeout(), success -> {
+                    if (mWebView != null && url.equals(mTempUrl)) {// 期间没有发起新的加载
+                        mTempUrl = null;
+                        mNavigationTracker.expect();
+                        mWebView.loadUrl(url);
+                    }
+                });
+            } else if (needSeedCookie) {
+                mNeedSeedCookie = true;
+                mTempUrl = url;
+                mNavigationTracker.expect();
                 mWebView.loadUrl(cookieUrl);
             } else {
+                mNeedSeedCookie = false;
+                mTempUrl = null;
+                mNavigationTracker.expect();
                 mWebView.loadUrl(url);
             }
         }
     }
 
+    private void retry() {
+        if (mWebView != null && mRetryUrl != null) {
+            mMetrics = null;// 失败的这次不再上报，重试的导航记录了重试次数
+            mNavigationTracker.expect();
+            mWebView.loadUrl(mRetryUrl);
+        }
+    }
+
     @Override
     public void reload() {
         load(getUrl());
@@ -514,6 +990,10 @@ public class BaseWebViewPresenter implements IPresenter {
     @Override
     public boolean goBackOrForward(int steps) {
         if (canGoBackOrForward(steps)) {
+            mHistoryNavigation = true;
+            mTimerHandler.removeCallbacks(mRetryRunnable);
+            mRetryUrl = null;
+            mNavigationTracker.expect();
             mWebView.goBackOrForward(steps);
             return true;
         }
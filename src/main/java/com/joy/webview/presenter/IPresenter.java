@@ -1,9 +1,15 @@
 package com.joy.webview.presenter;
 
+import android.support.annotation.MainThread;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.annotation.WorkerThread;
 import android.view.View;
 import android.webkit.JavascriptInterface;
 
+import com.joy.webview.metrics.PageLoadMetrics;
+import com.joy.webview.utils.ExtractionResult;
+import com.joy.webview.utils.ExtractionSpec;
 import com.trello.rxlifecycle.android.ActivityEvent;
 import com.trello.rxlifecycle.android.FragmentEvent;
 
@@ -33,8 +39,24 @@ public interface IPresenter {
 
     void onLifecycleEvent(FragmentEvent event);
 
+    /**
+     * @return 当前导航的id，每次新的导航（不包括重定向）递增
+     */
+    int getNavigationId();
+
+    /**
+     * @return 当前导航的加载耗时记录，尚未开始导航时返回null
+     */
+    @Nullable
+    PageLoadMetrics getPageLoadMetrics();
+
     void stopLoading();
 
+    /**
+     * 停止加载，同时取消超时计时、等待中的自动重试和种Cookie后的加载，之后不会再显示超时的错误页或重新加载。
+     */
+    void cancelLoading();
+
     void switchErrorView(int errorCode, String description, String failingUrl);
 
     void setUserAgent(String userAgent);
@@ -55,8 +77,19 @@ public interface IPresenter {
 
     boolean goBackOrForward(int steps);
 
+    /**
+     * 默认在onPageFinished之前已获取完成；关闭{@link com.joy.webview.JoyWeb#setDocumentCaptureEager(boolean)}后首次访问时才获取，获取完成前返回null。
+     * 需要等待结果时使用{@link #getDocument(DocumentCallback)}。
+     */
+    @Nullable
     Document getDocument();
 
+    /**
+     * 获取当前页面的Document，页面未加载完成时等到加载完成后再获取，在主线程回调。
+     * 获取失败（注入的JS出错或超时）时回调null。
+     */
+    void getDocument(@NonNull DocumentCallback callback);
+
     Elements getElementsByTag(String tagName);
 
     Element getElementByTag(String tagName, int index);
@@ -67,9 +100,36 @@ public interface IPresenter {
 
     String getAttribute(String attrName, String attrValue, String attributeKey);
 
+    String getSelection(String cssQuery, @Nullable String attributeKey);
+
+    /**
+     * 设置后页面加载完成时只提取声明的片段，除非{@link ExtractionSpec#requireDocument(boolean)}，否则不再获取整页的Document。
+     *
+     * @param spec 为null时恢复为获取整页的Document
+     */
+    void setExtractionSpec(@Nullable ExtractionSpec spec);
+
+    @Nullable
+    ExtractionResult getExtraction();
+
+    interface DocumentCallback {
+        @MainThread
+        void onDocumentReady(@Nullable Document document);
+    }
+
     abstract class JSHtmlSource {
         @JavascriptInterface
         @WorkerThread
         public abstract void receivedHtml(String html);
+
+        @JavascriptInterface
+        @WorkerThread
+        public void receivedHtmlChunk(int sequence, int index, int count, String chunk) {// 分块模式才会回调，已有的子类不必实现
+        }
+
+        @JavascriptInterface
+        @WorkerThread
+        public void receivedFragments(int sequence, String json) {// 设置了ExtractionSpec才会回调，已有的子类不必实现
+        }
     }
 }
@@ -1,24 +1,80 @@
 package com.joy.webview.ui;
 
+import android.support.annotation.Nullable;
 import android.support.v4.app.FragmentManager;
+import android.support.v4.app.FragmentStatePagerAdapter;
+import android.util.SparseArray;
+import android.view.ViewGroup;
 
-import com.joy.ui.adapter.ExFragmentPagerAdapter;
 import com.joy.ui.fragment.BaseUiFragment;
 import com.joy.ui.view.viewpager.VerticalViewPager;
 
 /**
  * Created by Daisw on 2017/11/16.
+ * <p>
+ * 按位置懒创建Fragment，只保留ViewPager缓存范围内的Fragment，其余的销毁并保存状态，
+ * 打开很长的系列时启动耗时和内存占用与系列长度无关。
  */
 
-public class BasePageWebAdapter<T extends BaseUiFragment> extends ExFragmentPagerAdapter<T> implements VerticalViewPager.ScrollableProvider {
+public class BasePageWebAdapter<T extends BaseUiFragment> extends FragmentStatePagerAdapter implements VerticalViewPager.ScrollableProvider {
 
-    public BasePageWebAdapter(FragmentManager fm) {
+    private final int mCount;
+    private final PageFactory<T> mFactory;
+    private final SparseArray<T> mFragments = new SparseArray<>();// 当前存活的Fragment
+
+    public BasePageWebAdapter(FragmentManager fm, int count, PageFactory<T> factory) {
         super(fm);
+        mCount = count;
+        mFactory = factory;
+    }
+
+    @Override
+    public T getItem(int position) {
+        return mFactory.create(position);
+    }
+
+    @Override
+    public int getCount() {
+        return mCount;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object instantiateItem(ViewGroup container, int position) {
+        T t = (T) super.instantiateItem(container, position);// 新创建的或从保存的状态中恢复的
+        mFragments.put(position, t);
+        mFactory.bind(position, t);
+        return t;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public int getItemPosition(Object object) {// notifyDataSetChanged时只重新创建过期的Fragment
+        int index = mFragments.indexOfValue((T) object);
+        return index >= 0 && mFactory.isStale(mFragments.keyAt(index), (T) object) ? POSITION_NONE : POSITION_UNCHANGED;
+    }
+
+    @Override
+    public void destroyItem(ViewGroup container, int position, Object object) {
+        mFragments.remove(position);
+        super.destroyItem(container, position, object);
+    }
+
+    /**
+     * @return 该位置存活的Fragment，尚未创建或已被销毁时返回null
+     */
+    @Nullable
+    public T getFragment(int position) {
+        return mFragments.get(position);
+    }
+
+    public SparseArray<T> getFragments() {
+        return mFragments;
     }
 
     @Override
     public VerticalViewPager.Scrollable provideScrollable(int position) {
-        T t = getItem(position);
+        T t = mFragments.get(position);
         if (t instanceof BasePageWebViewFragment) {
             return ((BasePageWebViewFragment) t).getWebView();
         } else if (t instanceof BasePageWebX5Fragment) {
@@ -26,4 +82,18 @@ public class BasePageWebAdapter<T extends BaseUiFragment> extends ExFragmentPage
         }
         return null;
     }
+
+    public interface PageFactory<T> {
+        T create(int position);
+
+        /**
+         * 每次Fragment被添加到ViewPager时调用，包括从保存的状态中恢复时。
+         */
+        void bind(int position, T t);
+
+        /**
+         * @return 是否需要重新创建，如数据到达前创建的占位页
+         */
+        boolean isStale(int position, T t);
+    }
 }
@@ -3,9 +3,12 @@ package com.joy.webview.ui;
 import android.content.Context;
 import android.os.Bundle;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.v4.app.Fragment;
 import android.view.View;
 import android.view.ViewGroup.LayoutParams;
+import android.widget.FrameLayout;
+import android.widget.ImageView;
 import android.widget.LinearLayout;
 import android.widget.TextView;
 
@@ -13,8 +16,13 @@ import com.joy.ui.utils.DimenCons;
 import com.joy.ui.view.JWebView;
 import com.joy.utils.TextUtil;
 import com.joy.webview.R;
+import com.joy.webview.pool.PageWebViewRecycler;
 
+import static android.os.Build.VERSION.SDK_INT;
+import static android.os.Build.VERSION_CODES.O;
 import static android.view.ViewGroup.LayoutParams.MATCH_PARENT;
+import static android.webkit.WebView.RENDERER_PRIORITY_BOUND;
+import static android.webkit.WebView.RENDERER_PRIORITY_IMPORTANT;
 
 /**
  * Created by Daisw on 2017/11/15.
@@ -24,6 +32,13 @@ public class BasePageWebViewFragment extends BaseWebViewFragment {
 
     private TextView mTvPageTitle, mTvPageSubtitle;
     private String mPageTitle, mPageSubtitle;
+    private boolean mLoadRequested;// 由UIPageDelegate决定何时加载
+    private boolean mPreload;
+    private boolean mLoadStarted;
+    private boolean mPageFinished;
+    private FrameLayout mFlContent;
+    private ImageView mIvSnapshot;// 重新加载完成前显示上次离开时的截图
+    private int mSnapshotScrollY;
 
     public JWebView getWebView() {
         return (JWebView) getPresenter().getWebView();
@@ -35,7 +50,9 @@ public class BasePageWebViewFragment extends BaseWebViewFragment {
         llRoot.setLayoutParams(new LayoutParams(MATCH_PARENT, MATCH_PARENT));
         llRoot.setOrientation(LinearLayout.VERTICAL);
         llRoot.addView(inflateLayout(R.layout.lib_view_page_margin), new LayoutParams(MATCH_PARENT, DimenCons.DP(80)));
-        llRoot.addView(contentView, new LayoutParams(MATCH_PARENT, MATCH_PARENT));
+        mFlContent = new FrameLayout(getActivity());
+        mFlContent.addView(contentView, new LayoutParams(MATCH_PARENT, MATCH_PARENT));
+        llRoot.addView(mFlContent, new LayoutParams(MATCH_PARENT, MATCH_PARENT));
         super.setContentView(llRoot);
     }
 
@@ -47,13 +64,118 @@ public class BasePageWebViewFragment extends BaseWebViewFragment {
         setPageTitle(mPageTitle);
         mTvPageSubtitle = findViewById(R.id.tvPageSubtitle);
         setPageSubtitle(mPageSubtitle);
+        showSnapshot();
+    }
+
+    @Override
+    public void onActivityCreated(@Nullable Bundle savedInstanceState) {
+        super.onActivityCreated(savedInstanceState);
+        if (mLoadRequested) {
+            startLoad(mPreload);
+        }
     }
 
     @Override
     public void onDestroyView() {
+        BasePageWebViewActivity activity = getPageActivity();
+        if (mPageFinished && activity != null && !activity.isFinishing()) {// 移出ViewPager前截图，翻回来时先显示
+            activity.getPageSnapshotCache().capture(mUrl, getWebView(), getWebView().getScrollY());
+        }
         super.onDestroyView();
+        mFlContent = null;
+        mIvSnapshot = null;
         mTvPageTitle = null;
         mTvPageSubtitle = null;
+        mLoadStarted = false;
+        mPageFinished = false;
+    }
+
+    @Nullable
+    @Override
+    protected PageWebViewRecycler getWebViewRecycler() {
+        BasePageWebViewActivity activity = getPageActivity();
+        return activity != null ? activity.getWebViewRecycler() : null;
+    }
+
+    @Override
+    protected boolean isLoadDeferred() {// 只有在翻页的Activity中才由UIPageDelegate决定何时加载
+        return getPageActivity() != null;
+    }
+
+    @Nullable
+    private BasePageWebViewActivity getPageActivity() {
+        return getActivity() instanceof BasePageWebViewActivity ? (BasePageWebViewActivity) getActivity() : null;
+    }
+
+    /**
+     * @param preload 是否为相邻页的预加载，Android O以上会降低渲染进程的优先级
+     */
+    public void startLoad(boolean preload) {
+        mLoadRequested = true;
+        mPreload = preload;
+        if (getPresenter() == null) {// 视图还未创建，创建后再加载
+            return;
+        }
+        if (SDK_INT >= O) {// 预加载的页面降低渲染进程的优先级，不可见时可被系统回收
+            getWebView().setRendererPriorityPolicy(preload ? RENDERER_PRIORITY_BOUND : RENDERER_PRIORITY_IMPORTANT, preload);
+        }
+        if (!mLoadStarted) {
+            mLoadStarted = true;
+            mPageFinished = false;
+            getPresenter().load(mUrl);
+        }
+    }
+
+    /**
+     * 移出预加载范围时调用，停止未完成的加载，已加载完成的页面保留。
+     */
+    public void cancelLoad() {
+        mLoadRequested = false;
+        if (getPresenter() != null && mLoadStarted && !mPageFinished) {
+            mLoadStarted = false;
+            getPresenter().cancelLoading();
+        }
+    }
+
+    public boolean isPageFinished() {
+        return mPageFinished;
+    }
+
+    @Override
+    public void onPageFinished(String url) {
+        super.onPageFinished(url);
+        if (mLoadStarted) {
+            mPageFinished = true;
+            hideSnapshot();
+            BasePageWebViewActivity activity = getPageActivity();
+            if (activity != null) {
+                activity.onPageLoadFinished(this);
+            }
+        }
+    }
+
+    private void showSnapshot() {
+        BasePageWebViewActivity activity = getPageActivity();
+        PageSnapshotCache.Snapshot snapshot = activity != null ? activity.getPageSnapshotCache().get(mUrl) : null;
+        if (snapshot == null) {
+            return;
+        }
+        mSnapshotScrollY = snapshot.getScrollY();
+        mIvSnapshot = new ImageView(getActivity());
+        mIvSnapshot.setScaleType(ImageView.ScaleType.FIT_XY);
+        mIvSnapshot.setImageBitmap(snapshot.getBitmap());
+        mFlContent.addView(mIvSnapshot, new LayoutParams(MATCH_PARENT, MATCH_PARENT));
+    }
+
+    private void hideSnapshot() {
+        if (mIvSnapshot == null) {
+            return;
+        }
+        if (getWebView().getScrollY() == 0) {// 用户还没有滚动时恢复到离开时的位置
+            getWebView().scrollTo(0, mSnapshotScrollY);
+        }
+        mFlContent.removeView(mIvSnapshot);
+        mIvSnapshot = null;
     }
 
     public BasePageWebViewFragment setPageTitle(String title) {
@@ -77,7 +199,10 @@ public class BasePageWebViewFragment extends BaseWebViewFragment {
 
     @Override
     public void onScrollChanged(int scrollX, int scrollY, int oldScrollX, int oldScrollY) {
-        ((BasePageWebViewActivity) getActivity()).onScrollChanged(scrollX, scrollY, oldScrollX, oldScrollY);
+        BasePageWebViewActivity activity = getPageActivity();
+        if (activity != null) {
+            activity.onScrollChanged(scrollX, scrollY, oldScrollX, oldScrollY);
+        }
     }
 
     public static BasePageWebViewFragment instantiate(@NonNull Context context, @NonNull String url) {
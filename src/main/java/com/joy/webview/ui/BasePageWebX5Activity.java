@@ -12,6 +12,7 @@ import com.joy.share.ShareItem;
 import com.joy.ui.activity.BaseUiActivity;
 import com.joy.webview.component.DaggerBasePageWebComponent;
 import com.joy.webview.module.BasePageWebModule;
+import com.joy.webview.pool.PageWebX5Recycler;
 import com.joy.webview.ui.interfaces.BaseViewPageWeb;
 import com.joy.webview.view.NavigationBar;
 
@@ -29,6 +30,9 @@ public class BasePageWebX5Activity extends BaseUiActivity implements BaseViewPag
     @Inject
     UIPageDelegate<BasePageWebX5Fragment> mUIDelegate;
 
+    private final PageWebX5Recycler mWebViewRecycler = new PageWebX5Recycler();
+    private final PageSnapshotCache mPageSnapshotCache = new PageSnapshotCache();
+
     @Override
     protected void onCreate(@Nullable Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -40,6 +44,14 @@ public class BasePageWebX5Activity extends BaseUiActivity implements BaseViewPag
         getUIDelegate().onCreate();
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();// 各页面的WebView在此期间交还
+        getUIDelegate().onDestroy();
+        mWebViewRecycler.release();
+        mPageSnapshotCache.clear();
+    }
+
     @Override
     public void resolveThemeAttribute() {
         super.resolveThemeAttribute();
@@ -81,6 +93,10 @@ public class BasePageWebX5Activity extends BaseUiActivity implements BaseViewPag
         getUIDelegate().onScrollChanged(scrollX, scrollY, oldScrollX, oldScrollY);
     }
 
+    public void onPageLoadFinished(BasePageWebX5Fragment f) {
+        getUIDelegate().onPageFinished(f);
+    }
+
     @Override
     public List<ShareItem> getShareItems() {
         return getUIDelegate().getJoyShare().getDefaultItems();
@@ -91,6 +107,14 @@ public class BasePageWebX5Activity extends BaseUiActivity implements BaseViewPag
         return getUIDelegate().onShareItemClick(item);
     }
 
+    public PageWebX5Recycler getWebViewRecycler() {
+        return mWebViewRecycler;
+    }
+
+    public PageSnapshotCache getPageSnapshotCache() {
+        return mPageSnapshotCache;
+    }
+
     public UIPageDelegate<BasePageWebX5Fragment> getUIDelegate() {
         return mUIDelegate;
     }
@@ -110,4 +134,21 @@ public class BasePageWebX5Activity extends BaseUiActivity implements BaseViewPag
         intent.putExtra("currentPosition", position);
         act.startActivity(intent);
     }
+
+    /**
+     * 实体较多时使用，数据源注册在进程内，Intent中只携带token，翻页时按窗口加载实体。
+     * 页面关闭时注销数据源，启动失败时立即注销。
+     */
+    public static void startActivity(Activity act, PageDataSource dataSource, int position) {
+        Intent intent = new Intent(act, BasePageWebX5Activity.class);
+        String token = PageDataSources.register(dataSource);
+        intent.putExtra("pageDataSource", token);
+        intent.putExtra("currentPosition", position);
+        try {
+            act.startActivity(intent);
+        } catch (RuntimeException e) {
+            PageDataSources.unregister(token);
+            throw e;
+        }
+    }
 }
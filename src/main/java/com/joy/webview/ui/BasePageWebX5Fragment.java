@@ -3,15 +3,19 @@ package com.joy.webview.ui;
 import android.content.Context;
 import android.os.Bundle;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.support.v4.app.Fragment;
 import android.view.View;
 import android.view.ViewGroup.LayoutParams;
+import android.widget.FrameLayout;
+import android.widget.ImageView;
 import android.widget.LinearLayout;
 import android.widget.TextView;
 
 import com.joy.ui.utils.DimenCons;
 import com.joy.utils.TextUtil;
 import com.joy.webview.R;
+import com.joy.webview.pool.PageWebX5Recycler;
 import com.joy.webview.view.WebX5;
 
 import static android.view.ViewGroup.LayoutParams.MATCH_PARENT;
@@ -24,6 +28,13 @@ public class BasePageWebX5Fragment extends BaseWebX5Fragment {
 
     private TextView mTvPageTitle, mTvPageSubtitle;
     private String mPageTitle, mPageSubtitle;
+    private boolean mLoadRequested;// 由UIPageDelegate决定何时加载
+    private boolean mPreload;
+    private boolean mLoadStarted;
+    private boolean mPageFinished;
+    private FrameLayout mFlContent;
+    private ImageView mIvSnapshot;// 重新加载完成前显示上次离开时的截图
+    private int mSnapshotScrollY;
 
     public WebX5 getWebView() {
         return (WebX5) getPresenter().getWebView();
@@ -35,7 +46,9 @@ public class BasePageWebX5Fragment extends BaseWebX5Fragment {
         llRoot.setLayoutParams(new LayoutParams(MATCH_PARENT, MATCH_PARENT));
         llRoot.setOrientation(LinearLayout.VERTICAL);
         llRoot.addView(inflateLayout(R.layout.lib_view_page_margin), new LayoutParams(MATCH_PARENT, DimenCons.DP(80)));
-        llRoot.addView(contentView, new LayoutParams(MATCH_PARENT, MATCH_PARENT));
+        mFlContent = new FrameLayout(getActivity());
+        mFlContent.addView(contentView, new LayoutParams(MATCH_PARENT, MATCH_PARENT));
+        llRoot.addView(mFlContent, new LayoutParams(MATCH_PARENT, MATCH_PARENT));
         super.setContentView(llRoot);
     }
 
@@ -47,13 +60,115 @@ public class BasePageWebX5Fragment extends BaseWebX5Fragment {
         setPageTitle(mPageTitle);
         mTvPageSubtitle = findViewById(R.id.tvPageSubtitle);
         setPageSubtitle(mPageSubtitle);
+        showSnapshot();
+    }
+
+    @Override
+    public void onActivityCreated(@Nullable Bundle savedInstanceState) {
+        super.onActivityCreated(savedInstanceState);
+        if (mLoadRequested) {
+            startLoad(mPreload);
+        }
     }
 
     @Override
     public void onDestroyView() {
+        BasePageWebX5Activity activity = getPageActivity();
+        if (mPageFinished && activity != null && !activity.isFinishing()) {// 移出ViewPager前截图，翻回来时先显示
+            activity.getPageSnapshotCache().capture(mUrl, getWebView(), getWebView().getWebScrollY());
+        }
         super.onDestroyView();
+        mFlContent = null;
+        mIvSnapshot = null;
         mTvPageTitle = null;
         mTvPageSubtitle = null;
+        mLoadStarted = false;
+        mPageFinished = false;
+    }
+
+    @Nullable
+    @Override
+    protected PageWebX5Recycler getWebViewRecycler() {
+        BasePageWebX5Activity activity = getPageActivity();
+        return activity != null ? activity.getWebViewRecycler() : null;
+    }
+
+    @Override
+    protected boolean isLoadDeferred() {// 只有在翻页的Activity中才由UIPageDelegate决定何时加载
+        return getPageActivity() != null;
+    }
+
+    @Nullable
+    private BasePageWebX5Activity getPageActivity() {
+        return getActivity() instanceof BasePageWebX5Activity ? (BasePageWebX5Activity) getActivity() : null;
+    }
+
+    /**
+     * @param preload 是否为相邻页的预加载
+     */
+    public void startLoad(boolean preload) {
+        mLoadRequested = true;
+        mPreload = preload;
+        if (getPresenter() == null) {// 视图还未创建，创建后再加载
+            return;
+        }
+        if (!mLoadStarted) {
+            mLoadStarted = true;
+            mPageFinished = false;
+            getPresenter().load(mUrl);
+        }
+    }
+
+    /**
+     * 移出预加载范围时调用，停止未完成的加载，已加载完成的页面保留。
+     */
+    public void cancelLoad() {
+        mLoadRequested = false;
+        if (getPresenter() != null && mLoadStarted && !mPageFinished) {
+            mLoadStarted = false;
+            getPresenter().cancelLoading();
+        }
+    }
+
+    public boolean isPageFinished() {
+        return mPageFinished;
+    }
+
+    @Override
+    public void onPageFinished(String url) {
+        super.onPageFinished(url);
+        if (mLoadStarted) {
+            mPageFinished = true;
+            hideSnapshot();
+            BasePageWebX5Activity activity = getPageActivity();
+            if (activity != null) {
+                activity.onPageLoadFinished(this);
+            }
+        }
+    }
+
+    private void showSnapshot() {
+        BasePageWebX5Activity activity = getPageActivity();
+        PageSnapshotCache.Snapshot snapshot = activity != null ? activity.getPageSnapshotCache().get(mUrl) : null;
+        if (snapshot == null) {
+            return;
+        }
+        mSnapshotScrollY = snapshot.getScrollY();
+        mIvSnapshot = new ImageView(getActivity());
+        mIvSnapshot.setScaleType(ImageView.ScaleType.FIT_XY);
+        mIvSnapshot.setImageBitmap(snapshot.getBitmap());
+        mFlContent.addView(mIvSnapshot, new LayoutParams(MATCH_PARENT, MATCH_PARENT));
+    }
+
+    private void hideSnapshot() {
+        if (mIvSnapshot == null) {
+            return;
+        }
+        if (getWebView().getWebScrollY() == 0) {// 用户还没有滚动时恢复到离开时的位置
+            getWebView().getView().scrollTo(0, mSnapshotScrollY);
+        }
+        mFlContent.removeView(mIvSnapshot);
+        mIvSnapshot = null;
     }
 
     public BasePageWebX5Fragment setPageTitle(String title) {
@@ -77,7 +192,10 @@ public class BasePageWebX5Fragment extends BaseWebX5Fragment {
 
     @Override
     public void onScrollChanged(int scrollX, int scrollY, int oldScrollX, int oldScrollY) {
-        ((BasePageWebX5Activity) getActivity()).onScrollChanged(scrollX, scrollY, oldScrollX, oldScrollY);
+        BasePageWebX5Activity activity = getPageActivity();
+        if (activity != null) {
+            activity.onScrollChanged(scrollX, scrollY, oldScrollX, oldScrollY);
+        }
     }
 
     public static BasePageWebX5Fragment instantiate(@NonNull Context context, @NonNull String url) {
@@ -23,6 +23,7 @@ import com.joy.ui.fragment.BaseHttpUiFragment;
 import com.joy.webview.component.BaseWebViewComponent;
 import com.joy.webview.component.DaggerBaseWebViewComponent;
 import com.joy.webview.module.BaseWebViewModule;
+import com.joy.webview.pool.PageWebViewRecycler;
 import com.joy.webview.presenter.IPresenter;
 import com.joy.webview.ui.interfaces.BaseViewWeb;
 import com.joy.webview.ui.interfaces.KConstant;
@@ -63,7 +64,7 @@ public class BaseWebViewFragment extends BaseHttpUiFragment implements BaseViewW
     private BaseWebViewComponent component() {
         return DaggerBaseWebViewComponent.builder()
                 .activityModule(new ActivityModule(getActivity()))
-                .baseWebViewModule(new BaseWebViewModule(this, getActivity().getIntent().getBooleanExtra(KEY_CACHE_ENABLE, false)))
+                .baseWebViewModule(new BaseWebViewModule(this, getActivity().getIntent().getBooleanExtra(KEY_CACHE_ENABLE, false), getWebViewRecycler()))
                 .build();
     }
 
@@ -72,7 +73,24 @@ public class BaseWebViewFragment extends BaseHttpUiFragment implements BaseViewW
         super.onActivityCreated(savedInstanceState);
         component().inject(this);
         setContentView(getPresenter().getWebView());
-        getPresenter().load(mUrl);
+        if (!isLoadDeferred()) {
+            getPresenter().load(mUrl);
+        }
+    }
+
+    /**
+     * @return 不为null时WebView从这里取用，销毁时交还
+     */
+    @Nullable
+    protected PageWebViewRecycler getWebViewRecycler() {
+        return null;
+    }
+
+    /**
+     * @return 是否由子类决定何时加载，为true时创建后不立即加载
+     */
+    protected boolean isLoadDeferred() {
+        return false;
     }
 
     @Override
@@ -18,6 +18,7 @@ import com.joy.ui.fragment.BaseHttpUiFragment;
 import com.joy.webview.component.BaseWebX5Component;
 import com.joy.webview.component.DaggerBaseWebX5Component;
 import com.joy.webview.module.BaseWebX5Module;
+import com.joy.webview.pool.PageWebX5Recycler;
 import com.joy.webview.presenter.IPresenter;
 import com.joy.webview.ui.interfaces.BaseViewWebX5;
 import com.joy.webview.ui.interfaces.KConstant;
@@ -63,7 +64,7 @@ public class BaseWebX5Fragment extends BaseHttpUiFragment implements BaseViewWeb
     private BaseWebX5Component component() {
         return DaggerBaseWebX5Component.builder()
                 .activityModule(new ActivityModule(getActivity()))
-                .baseWebX5Module(new BaseWebX5Module(this, getActivity().getIntent().getBooleanExtra(KEY_CACHE_ENABLE, false)))
+                .baseWebX5Module(new BaseWebX5Module(this, getActivity().getIntent().getBooleanExtra(KEY_CACHE_ENABLE, false), getWebViewRecycler()))
                 .build();
     }
 
@@ -72,7 +73,24 @@ public class BaseWebX5Fragment extends BaseHttpUiFragment implements BaseViewWeb
         super.onActivityCreated(savedInstanceState);
         component().inject(this);
         setContentView(getPresenter().getWebView());
-        getPresenter().load(mUrl);
+        if (!isLoadDeferred()) {
+            getPresenter().load(mUrl);
+        }
+    }
+
+    /**
+     * @return 不为null时WebView从这里取用，销毁时交还
+     */
+    @Nullable
+    protected PageWebX5Recycler getWebViewRecycler() {
+        return null;
+    }
+
+    /**
+     * @return 是否由子类决定何时加载，为true时创建后不立即加载
+     */
+    protected boolean isLoadDeferred() {
+        return false;
     }
 
     @Override
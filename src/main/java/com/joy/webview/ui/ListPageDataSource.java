@@ -0,0 +1,33 @@
+package com.joy.webview.ui;
+
+import android.support.annotation.NonNull;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 内存中的实体列表，通过token传递，列表再大也不受Binder事务大小的限制。
+ */
+
+public class ListPageDataSource implements PageDataSource {
+
+    private final List<? extends BasePageEntity> mEntities;
+
+    public ListPageDataSource(@NonNull List<? extends BasePageEntity> entities) {
+        mEntities = entities;
+    }
+
+    @Override
+    public int getCount() {
+        return mEntities.size();
+    }
+
+    @NonNull
+    @Override
+    public List<? extends BasePageEntity> load(int start, int count) {
+        if (start >= mEntities.size()) {
+            return Collections.emptyList();
+        }
+        return mEntities.subList(start, Math.min(start + count, mEntities.size()));
+    }
+}
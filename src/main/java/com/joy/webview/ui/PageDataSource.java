@@ -0,0 +1,30 @@
+package com.joy.webview.ui;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.WorkerThread;
+
+import java.util.List;
+
+/**
+ * 纵向翻页的数据源，按窗口分段提供{@link BasePageEntity}，实体不再经过Intent传递。
+ * 通过{@link PageDataSources#register(PageDataSource)}注册在进程内，Intent中只携带token。
+ */
+
+public interface PageDataSource {
+
+    /**
+     * @return 实体总数，打开页面后不能改变
+     */
+    int getCount();
+
+    /**
+     * 在后台线程调用，同一时间只有一个窗口在加载。
+     *
+     * @param start 起始位置
+     * @param count 数量，不超过剩余的实体数
+     * @return [start, start + count)范围内的实体，数量不足时缺少的页面保持为空的占位页
+     */
+    @NonNull
+    @WorkerThread
+    List<? extends BasePageEntity> load(int start, int count);
+}
@@ -0,0 +1,40 @@
+package com.joy.webview.ui;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * 进程内的{@link PageDataSource}注册表，页面关闭时注销。
+ * 进程被回收后token失效，恢复的页面会直接关闭。
+ * 只有页面真正创建后才会在关闭时注销；自行调用{@link #register}并启动页面时，启动失败或页面没有创建，
+ * 需由调用方调用{@link #unregister}，否则数据源会一直保留到进程结束。
+ */
+
+public class PageDataSources {
+
+    private static final Map<String, PageDataSource> sSources = new HashMap<>();
+
+    /**
+     * @return 放入Intent的token
+     */
+    public static synchronized String register(@NonNull PageDataSource source) {
+        String token = UUID.randomUUID().toString();// 不能用自增id，进程重启后可能和恢复的Intent中的旧token重复
+        sSources.put(token, source);
+        return token;
+    }
+
+    @Nullable
+    public static synchronized PageDataSource get(@Nullable String token) {
+        return token == null ? null : sSources.get(token);
+    }
+
+    public static synchronized void unregister(@Nullable String token) {
+        if (token != null) {
+            sSources.remove(token);
+        }
+    }
+}
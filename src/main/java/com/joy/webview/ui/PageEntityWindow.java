@@ -0,0 +1,148 @@
+package com.joy.webview.ui;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.SparseArray;
+import android.util.SparseBooleanArray;
+
+import com.joy.utils.LogMgr;
+import com.joy.webview.JoyWeb;
+
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按窗口从{@link PageDataSource}加载实体，只保留当前窗口和前后相邻的窗口。
+ * 只在主线程中使用，所有窗口共用一个后台线程加载，加载的结果在主线程回调。
+ */
+
+class PageEntityWindow {
+
+    interface OnWindowLoadedListener {
+        /**
+         * @param start 新加载窗口的起始位置
+         * @param count 新加载窗口的实体数量
+         */
+        void onWindowLoaded(int start, int count);
+    }
+
+    private static final Handler sMainHandler = new Handler(Looper.getMainLooper());
+    private static final ThreadPoolExecutor sExecutor = new ThreadPoolExecutor(1, 1,
+            30, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(),
+            r -> new Thread(() -> {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                r.run();
+            }, "core-web-page-data"));
+
+    static {
+        sExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    private final PageDataSource mSource;
+    private final int mCount;
+    private final int mWindowSize;
+    private final SparseArray<List<? extends BasePageEntity>> mWindows = new SparseArray<>();
+    private final SparseBooleanArray mLoading = new SparseBooleanArray();
+    private OnWindowLoadedListener mListener;
+    private boolean mReleased;
+
+    PageEntityWindow(@NonNull PageDataSource source) {
+        mSource = source;
+        mCount = Math.max(source.getCount(), 0);
+        mWindowSize = JoyWeb.getPageDataWindowSize();
+    }
+
+    void setOnWindowLoadedListener(@Nullable OnWindowLoadedListener listener) {
+        mListener = listener;
+    }
+
+    int getCount() {
+        return mCount;
+    }
+
+    /**
+     * @return 所在窗口尚未加载时返回null
+     */
+    @Nullable
+    BasePageEntity peek(int position) {
+        if (position < 0 || position >= mCount) {
+            return null;
+        }
+        List<? extends BasePageEntity> window = mWindows.get(position / mWindowSize);
+        int offset = position % mWindowSize;
+        return window == null || offset >= window.size() ? null : window.get(offset);
+    }
+
+    /**
+     * 所在窗口尚未加载时在后台加载，加载完成后回调{@link OnWindowLoadedListener}。
+     */
+    void load(int position) {
+        if (position >= 0 && position < mCount) {
+            loadAsync(position / mWindowSize);
+        }
+    }
+
+    /**
+     * 后台加载position所在窗口和前后相邻的窗口，释放更远的窗口。
+     */
+    void prefetch(int position) {
+        int current = position / mWindowSize;
+        for (int i = mWindows.size() - 1; i >= 0; i--) {
+            if (Math.abs(mWindows.keyAt(i) - current) > 1) {
+                mWindows.removeAt(i);
+            }
+        }
+        for (int index = current - 1; index <= current + 1; index++) {
+            if (index >= 0 && index * mWindowSize < mCount) {
+                loadAsync(index);
+            }
+        }
+    }
+
+    void release() {
+        mReleased = true;
+        mListener = null;
+        mWindows.clear();
+    }
+
+    private void loadAsync(int index) {
+        if (mWindows.get(index) != null || mLoading.get(index)) {
+            return;
+        }
+        mLoading.put(index, true);
+        int start = index * mWindowSize;
+        int count = getWindowCount(index);
+        if (LogMgr.DEBUG) {
+            LogMgr.d("core-web", "PageEntityWindow loadAsync # window " + index);
+        }
+        sExecutor.execute(() -> {
+            List<? extends BasePageEntity> entities = null;
+            try {
+                entities = mSource.load(start, count);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+            List<? extends BasePageEntity> loaded = entities;
+            sMainHandler.post(() -> {
+                mLoading.delete(index);
+                if (mReleased || loaded == null) {
+                    return;
+                }
+                mWindows.put(index, loaded);
+                if (mListener != null) {
+                    mListener.onWindowLoaded(start, loaded.size());
+                }
+            });
+        });
+    }
+
+    private int getWindowCount(int index) {
+        return Math.min(mWindowSize, mCount - index * mWindowSize);
+    }
+}
@@ -0,0 +1,95 @@
+package com.joy.webview.ui;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.LruCache;
+import android.view.View;
+
+import com.joy.utils.LogMgr;
+import com.joy.webview.JoyWeb;
+
+/**
+ * 纵向翻页时页面被移出ViewPager前保存的缩略截图和滚动位置，页面重新创建时先显示截图，重新加载完成后再移除。
+ * 按截图占用的字节数LRU淘汰，上限由{@link JoyWeb#setPageSnapshotCacheSize(int)}配置。只在主线程中使用。
+ */
+
+public class PageSnapshotCache {
+
+    private static final float SCALE = 0.5f;// 宽高各缩小一半
+
+    private final LruCache<String, Snapshot> mCache;
+
+    public PageSnapshotCache() {
+        int maxSize = JoyWeb.getPageSnapshotCacheSize();
+        mCache = maxSize <= 0 ? null : new LruCache<String, Snapshot>(maxSize) {
+            @Override
+            protected int sizeOf(String key, Snapshot value) {
+                return value.getBitmap().getByteCount();
+            }
+        };
+    }
+
+    /**
+     * 截取view当前显示的内容。
+     *
+     * @param url
+     * @param view
+     * @param scrollY 页面的滚动位置，重新加载完成后恢复
+     */
+    public void capture(@Nullable String url, @NonNull View view, int scrollY) {
+        if (mCache == null || url == null) {
+            return;
+        }
+        int width = (int) (view.getWidth() * SCALE);
+        int height = (int) (view.getHeight() * SCALE);
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+        try {
+            Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.RGB_565);
+            Canvas canvas = new Canvas(bitmap);
+            canvas.scale(SCALE, SCALE);
+            canvas.translate(-view.getScrollX(), -view.getScrollY());
+            view.draw(canvas);
+            mCache.put(url, new Snapshot(bitmap, scrollY));
+        } catch (OutOfMemoryError | Exception e) {// 截图失败不影响翻页
+            e.printStackTrace();
+            return;
+        }
+        if (LogMgr.DEBUG) {
+            LogMgr.d("core-web", "PageSnapshotCache capture # " + url + " size: " + mCache.size() + "/" + mCache.maxSize());
+        }
+    }
+
+    @Nullable
+    public Snapshot get(@Nullable String url) {
+        return mCache == null || url == null ? null : mCache.get(url);
+    }
+
+    public void clear() {
+        if (mCache != null) {
+            mCache.evictAll();
+        }
+    }
+
+    public static class Snapshot {
+
+        private final Bitmap mBitmap;
+        private final int mScrollY;
+
+        Snapshot(Bitmap bitmap, int scrollY) {
+            mBitmap = bitmap;
+            mScrollY = scrollY;
+        }
+
+        public Bitmap getBitmap() {
+            return mBitmap;
+        }
+
+        public int getScrollY() {
+            return mScrollY;
+        }
+    }
+}
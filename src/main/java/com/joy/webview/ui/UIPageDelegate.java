@@ -2,8 +2,10 @@ package com.joy.webview.ui;
 
 import android.content.Intent;
 import android.content.res.TypedArray;
+import android.os.Bundle;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
+import android.util.SparseArray;
 import android.view.Gravity;
 import android.widget.FrameLayout.LayoutParams;
 
@@ -16,16 +18,19 @@ import com.joy.ui.fragment.BaseUiFragment;
 import com.joy.ui.view.viewpager.PageChangeListenerAdapter;
 import com.joy.ui.view.viewpager.VerticalViewPager;
 import com.joy.utils.LayoutInflater;
+import com.joy.utils.TextUtil;
+import com.joy.webview.JoyWeb;
 import com.joy.webview.R;
 import com.joy.webview.ui.interfaces.BaseViewPageWeb;
 import com.joy.webview.view.NavigationBar;
 
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import javax.inject.Inject;
 
 import static android.view.ViewGroup.LayoutParams.MATCH_PARENT;
+import static com.joy.webview.ui.interfaces.KConstant.KEY_URL;
 import static com.joy.ui.utils.DimenCons.DP;
 
 /**
@@ -42,8 +47,9 @@ public class UIPageDelegate<F extends BaseUiFragment> {
     BaseUiActivity mActivity;
 
     VerticalViewPager mVerticalViewPager;
-    List<BasePageEntity> mPageEntities;
-    List<F> mFragments;
+    BasePageWebAdapter<F> mAdapter;
+    PageEntityWindow mEntities;
+    String mDataSourceToken;
     int mCurrentPosition;
 
     JoyShare mJoyShare;
@@ -73,35 +79,21 @@ public class UIPageDelegate<F extends BaseUiFragment> {
     void initData() {
         Intent intent = mActivity.getIntent();
         mCurrentPosition = intent.getIntExtra("currentPosition", 0);
-        mPageEntities = intent.getParcelableArrayListExtra("pageEntities");
-
-        mFragments = new ArrayList<>();
-        int i = 0;
-        String title, subtitle;
-        for (BasePageEntity entity : mPageEntities) {
-            if (i == 0) {
-                title = mActivity.getString(R.string.toast_nothing);
-                subtitle = null;
-            } else if (i == mCurrentPosition) {
-                title = mPageEntities.get(i - 1).getTitle();
-                subtitle = mActivity.getString(R.string.prev_page);
-            } else {
-                title = entity.getTitle();
-                subtitle = mActivity.getString(R.string.next_page);
+        mDataSourceToken = intent.getStringExtra("pageDataSource");
+        PageDataSource source;
+        if (mDataSourceToken != null) {
+            source = PageDataSources.get(mDataSourceToken);
+            if (source == null) {// 进程被回收后token已失效，无法恢复
+                mActivity.finish();
+                source = new ListPageDataSource(Collections.<BasePageEntity>emptyList());
             }
-            F f = (F) mBaseView.getFragment(entity.getUrl());
-            if (f instanceof BasePageWebViewFragment) {
-                ((BasePageWebViewFragment) f)
-                        .setPageTitle(title)
-                        .setPageSubtitle(subtitle);
-            } else if (f instanceof BasePageWebX5Fragment) {
-                ((BasePageWebX5Fragment) f)
-                        .setPageTitle(title)
-                        .setPageSubtitle(subtitle);
-            }
-            mFragments.add(f);
-            i++;
+        } else {
+            List<BasePageEntity> entities = intent.getParcelableArrayListExtra("pageEntities");
+            source = new ListPageDataSource(entities == null ? Collections.<BasePageEntity>emptyList() : entities);
         }
+        mEntities = new PageEntityWindow(source);
+        mEntities.setOnWindowLoadedListener(this::onWindowLoaded);
+        mEntities.prefetch(mCurrentPosition);
 
         mJoyShare = new JoyShare(mActivity);
         mJoyShare.setData(mBaseView.getShareItems());
@@ -110,7 +102,7 @@ public class UIPageDelegate<F extends BaseUiFragment> {
 
     void initTitle() {
         if (mActivity.hasTitle()) {
-            mActivity.setTitle(mPageEntities.get(mCurrentPosition).getTitle());
+            mActivity.setTitle(getPageTitle(mCurrentPosition));
         }
     }
 
@@ -118,10 +110,32 @@ public class UIPageDelegate<F extends BaseUiFragment> {
         addNavBarIfNecessary();
         mVerticalViewPager = mActivity.findViewById(R.id.vvpContainer);
         mVerticalViewPager.setPageMargin(DP(80));
-        BasePageWebAdapter<F> adapter =
-                new BasePageWebAdapter<>(mActivity.getSupportFragmentManager());
-        adapter.setFragments(mFragments);
-        mVerticalViewPager.setAdapter(adapter);
+        mVerticalViewPager.setOffscreenPageLimit(Math.max(JoyWeb.getPagePreloadWindow(), 1));// 预加载范围内的页面保留视图
+        mAdapter = new BasePageWebAdapter<>(mActivity.getSupportFragmentManager(), mEntities.getCount(),
+                new BasePageWebAdapter.PageFactory<F>() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public F create(int position) {
+                        BasePageEntity entity = mEntities.peek(position);
+                        if (entity == null) {// 所在窗口尚未加载完，先创建不加载的占位页，加载完成后在onWindowLoaded中重新创建
+                            mEntities.load(position);
+                            return (F) mBaseView.getFragment(TextUtil.TEXT_EMPTY);
+                        }
+                        return (F) mBaseView.getFragment(entity.getUrl());
+                    }
+
+                    @Override
+                    public void bind(int position, F f) {
+                        updateTitles(f, position);
+                        bindLoad(f, position);
+                    }
+
+                    @Override
+                    public boolean isStale(int position, F f) {
+                        return isPlaceholder(f) && mEntities.peek(position) != null;
+                    }
+                });
+        mVerticalViewPager.setAdapter(mAdapter);
         if (mCurrentPosition != 0) {
             mVerticalViewPager.setCurrentItem(mCurrentPosition, false);
         }
@@ -129,37 +143,185 @@ public class UIPageDelegate<F extends BaseUiFragment> {
             @Override
             public void onPageSelected(int position) {
                 mCurrentPosition = position;
+                mEntities.prefetch(position);
                 if (mActivity.hasTitle()) {
-                    mActivity.setTitle(mPageEntities.get(position).getTitle());
+                    mActivity.setTitle(getPageTitle(position));
                 }
-                if (position > 0) {
-                    updateTitles(mFragments.get(position), position - 1);
+                F current = mAdapter.getFragment(position);
+                if (current != null) {
+                    updateTitles(current, position);
                 }
-                if (position + 1 < mFragments.size()) {
-                    updateTitles(mFragments.get(position + 1), position + 1);
+                F next = mAdapter.getFragment(position + 1);
+                if (next != null) {
+                    updateTitles(next, position + 1);
                 }
+                onCurrentPageChanged();
             }
         });
     }
 
+    /**
+     * 停止预加载范围外未完成的加载，当前页立即加载，已加载完成时接着预加载相邻页。
+     */
+    private void onCurrentPageChanged() {
+        int window = JoyWeb.getPagePreloadWindow();
+        SparseArray<F> fragments = mAdapter.getFragments();
+        for (int i = 0; i < fragments.size(); i++) {
+            if (Math.abs(fragments.keyAt(i) - mCurrentPosition) > window) {
+                cancelLoad(fragments.valueAt(i));
+            }
+        }
+        F current = getCurrentFragment();
+        if (current == null) {// 尚未创建，创建时再加载
+            return;
+        }
+        startLoad(current, false);
+        if (isPageFinished(current)) {
+            preloadNeighbours();
+        }
+    }
+
+    /**
+     * 当前页加载完成后再预加载相邻页，避免和当前页争抢网络。
+     */
+    void onPageFinished(F f) {
+        if (f == getCurrentFragment()) {
+            preloadNeighbours();
+        }
+    }
+
+    private void preloadNeighbours() {
+        int window = JoyWeb.getPagePreloadWindow();
+        int start = Math.max(mCurrentPosition - window, 0);
+        int end = Math.min(mCurrentPosition + window, mEntities.getCount() - 1);
+        for (int i = start; i <= end; i++) {
+            F f = mAdapter.getFragment(i);
+            if (i != mCurrentPosition && f != null) {
+                startLoad(f, true);
+            }
+        }
+    }
+
+    /**
+     * Fragment创建（或恢复）时按当前位置决定是否加载。
+     */
+    private void bindLoad(F f, int position) {
+        if (position == mCurrentPosition) {
+            startLoad(f, false);
+        } else if (Math.abs(position - mCurrentPosition) <= JoyWeb.getPagePreloadWindow()) {
+            F current = getCurrentFragment();
+            if (current != null && isPageFinished(current)) {
+                startLoad(f, true);
+            }
+        }
+    }
+
+    private void startLoad(F f, boolean preload) {
+        if (isPlaceholder(f)) {
+            return;
+        }
+        if (f instanceof BasePageWebViewFragment) {
+            ((BasePageWebViewFragment) f).startLoad(preload);
+        } else if (f instanceof BasePageWebX5Fragment) {
+            ((BasePageWebX5Fragment) f).startLoad(preload);
+        }
+    }
+
+    private void cancelLoad(F f) {
+        if (f instanceof BasePageWebViewFragment) {
+            ((BasePageWebViewFragment) f).cancelLoad();
+        } else if (f instanceof BasePageWebX5Fragment) {
+            ((BasePageWebX5Fragment) f).cancelLoad();
+        }
+    }
+
+    private static boolean isPlaceholder(BaseUiFragment f) {
+        Bundle args = f.getArguments();
+        return args == null || TextUtil.isEmpty(args.getString(KEY_URL));
+    }
+
+    private boolean isPageFinished(F f) {
+        if (f instanceof BasePageWebViewFragment) {
+            return ((BasePageWebViewFragment) f).isPageFinished();
+        } else if (f instanceof BasePageWebX5Fragment) {
+            return ((BasePageWebX5Fragment) f).isPageFinished();
+        }
+        return true;
+    }
+
+    /**
+     * 页面顶部显示相邻页的标题：第一页没有上一页；当前页及之前显示上一页的标题；之后的页显示自己的标题。
+     */
     private void updateTitles(F f, int position) {
+        String title, subtitle;
+        if (position == 0) {
+            title = mActivity.getString(R.string.toast_nothing);
+            subtitle = null;
+        } else if (position <= mCurrentPosition) {
+            title = getPageTitle(position - 1);
+            subtitle = mActivity.getString(R.string.prev_page);
+        } else {
+            title = getPageTitle(position);
+            subtitle = mActivity.getString(R.string.next_page);
+        }
         if (f instanceof BasePageWebViewFragment) {
             ((BasePageWebViewFragment) f)
-                    .setPageTitle(mPageEntities.get(position).getTitle())
-                    .setPageSubtitle(mActivity.getString(position < mCurrentPosition ? R.string.prev_page : R.string.next_page));
+                    .setPageTitle(title)
+                    .setPageSubtitle(subtitle);
         } else if (f instanceof BasePageWebX5Fragment) {
             ((BasePageWebX5Fragment) f)
-                    .setPageTitle(mPageEntities.get(position).getTitle())
-                    .setPageSubtitle(mActivity.getString(position < mCurrentPosition ? R.string.prev_page : R.string.next_page));
+                    .setPageTitle(title)
+                    .setPageSubtitle(subtitle);
+        }
+    }
+
+    /**
+     * 后台加载的窗口到达后补上已创建页面和标题栏中缺少的标题，并重新创建窗口内的占位页。
+     */
+    private void onWindowLoaded(int start, int count) {
+        if (mActivity.hasTitle() && mCurrentPosition >= start && mCurrentPosition < start + count) {
+            mActivity.setTitle(getPageTitle(mCurrentPosition));
+        }
+        if (mAdapter == null) {
+            return;
+        }
+        boolean stale = false;
+        SparseArray<F> fragments = mAdapter.getFragments();
+        for (int i = 0; i < fragments.size(); i++) {
+            updateTitles(fragments.valueAt(i), fragments.keyAt(i));
+            stale |= mAdapter.getItemPosition(fragments.valueAt(i)) == BasePageWebAdapter.POSITION_NONE;
+        }
+        if (stale) {
+            mAdapter.notifyDataSetChanged();
+        }
+    }
+
+    /**
+     * @return 所在窗口尚未加载时返回null，加载完成后通过{@link #onWindowLoaded(int, int)}补上
+     */
+    @Nullable
+    private String getPageTitle(int position) {
+        BasePageEntity entity = mEntities.peek(position);
+        return entity == null ? null : entity.getTitle();
+    }
+
+    void onDestroy() {
+        mEntities.release();
+        if (mActivity.isFinishing()) {// 配置变更重建时保留，恢复后继续使用
+            PageDataSources.unregister(mDataSourceToken);
         }
     }
 
+    @Nullable
     public String getUrl() {
-        return mPageEntities.get(mCurrentPosition).getUrl();
+        BasePageEntity entity = mEntities.peek(mCurrentPosition);
+        return entity == null ? null : entity.getUrl();
     }
 
+    @Nullable
     public String getTitle() {
-        return mPageEntities.get(mCurrentPosition).getTitle();
+        BasePageEntity entity = mEntities.peek(mCurrentPosition);
+        return entity == null ? null : entity.getTitle();
     }
 
     public JoyShare getJoyShare() {
@@ -255,8 +417,12 @@ public class UIPageDelegate<F extends BaseUiFragment> {
         }
     }
 
+    /**
+     * @return 当前页的Fragment，尚未创建时返回null
+     */
+    @Nullable
     public F getCurrentFragment() {
-        return mFragments.get(mCurrentPosition);
+        return mAdapter == null ? null : mAdapter.getFragment(mCurrentPosition);
     }
 
     public int getCurrentPosition() {
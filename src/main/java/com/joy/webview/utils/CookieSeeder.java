@@ -0,0 +1,241 @@
+package com.joy.webview.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.MainThread;
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+import android.webkit.CookieSyncManager;
+
+import com.joy.ui.BaseApplication;
+import com.joy.utils.LogMgr;
+import com.joy.utils.TextUtil;
+import com.joy.webview.JoyWeb;
+import com.tencent.smtt.sdk.CookieManager;
+
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static android.os.Build.VERSION.SDK_INT;
+import static android.os.Build.VERSION_CODES.LOLLIPOP;
+
+/**
+ * 在后台请求{@link JoyWeb#getCookieUrl()}，手动跟随重定向并收集每一跳的Set-Cookie，
+ * 再直接写入系统内核和X5内核的CookieManager。WebView不需要先加载一次种Cookie的页面，历史记录中也不会出现该页面。
+ * 同一时间只有一个请求，期间的调用会合并到同一次结果中。
+ * {@link JoyWeb#setCookieUrl}时即开始预先请求，页面加载前通过{@link #await}等待结果；设置了有效期时到期前自动重新请求。
+ */
+
+public class CookieSeeder {
+
+    private static final int MAX_REDIRECTS = 10;
+    private static final int CONNECT_TIMEOUT = 10 * 1000;
+    private static final int READ_TIMEOUT = 10 * 1000;
+
+    private static final Handler sMainHandler = new Handler(Looper.getMainLooper());
+    private static final List<Callback> sCallbacks = new ArrayList<>();
+    private static boolean sSeeding;
+    private static final Runnable sRefreshRunnable = () -> {
+        String cookieUrl = JoyWeb.getCookieUrl();
+        if (TextUtil.isNotEmpty(cookieUrl)) {
+            seed(cookieUrl, null);
+        }
+    };
+
+    /**
+     * 可以在任意线程调用。
+     *
+     * @param cookieUrl
+     */
+    public static void preseed(String cookieUrl) {
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            seed(cookieUrl, null);
+        } else {
+            sMainHandler.post(() -> seed(cookieUrl, null));
+        }
+    }
+
+    /**
+     * 已种过Cookie时立即回调，否则等待正在进行（或新发起）的请求，最多等待timeout毫秒，超时回调false。
+     *
+     * @param cookieUrl
+     * @param timeout
+     * @param callback  在主线程回调，只回调一次
+     */
+    @MainThread
+    public static void await(String cookieUrl, long timeout, Callback callback) {
+        if (JoyWeb.isCookieSeeded()) {
+            callback.onSeeded(true);
+            return;
+        }
+        Waiter waiter = new Waiter(callback);
+        seed(cookieUrl, waiter);
+        if (sCallbacks.contains(waiter)) {
+            sMainHandler.postDelayed(waiter, timeout);
+        }
+    }
+
+    @MainThread
+    public static void cancelRefresh() {
+        sMainHandler.removeCallbacks(sRefreshRunnable);
+    }
+
+    /**
+     * @param cookieUrl
+     * @param callback  在主线程回调，可以为null
+     */
+    @MainThread
+    public static void seed(String cookieUrl, @Nullable Callback callback) {
+        if (callback != null) {
+            sCallbacks.add(callback);
+        }
+        if (sSeeding) {
+            return;
+        }
+        sSeeding = true;
+        new Thread(() -> {
+            List<String[]> cookies = fetchCookies(cookieUrl);
+            sMainHandler.post(() -> onFetched(cookieUrl, cookies));
+        }, "core-web-cookie-seed").start();
+    }
+
+    @MainThread
+    private static void onFetched(String cookieUrl, @Nullable List<String[]> cookies) {
+        sSeeding = false;
+        String currentUrl = JoyWeb.getCookieUrl();
+        if (TextUtil.isNotEmpty(currentUrl) && !cookieUrl.equals(currentUrl)) {
+            seed(currentUrl, null);// 请求期间更换了URL，等待中的回调合并到新的请求
+            return;
+        }
+        boolean success = cookies != null && cookieUrl.equals(JoyWeb.getCookieUrl());// 期间可能已调用clearCookie
+        if (success) {
+            writeCookies(cookies);
+            JoyWeb.setCookieSeeded(true);
+            long ttl = JoyWeb.getCookieSeedTtl();
+            if (ttl > 0) {
+                sMainHandler.removeCallbacks(sRefreshRunnable);
+                sMainHandler.postDelayed(sRefreshRunnable, ttl * 9 / 10);// 到期前重新请求，避免页面加载时等待
+            }
+        }
+        if (LogMgr.DEBUG) {
+            LogMgr.d("core-web", "CookieSeeder onFetched # success: " + success + " cookies: " + (cookies == null ? 0 : cookies.size()));
+        }
+        List<Callback> callbacks = new ArrayList<>(sCallbacks);
+        sCallbacks.clear();
+        for (Callback callback : callbacks) {
+            callback.onSeeded(success);
+        }
+    }
+
+    /**
+     * @return {url, Set-Cookie}的列表，请求失败时返回null
+     */
+    @Nullable
+    @WorkerThread
+    private static List<String[]> fetchCookies(String cookieUrl) {
+        List<String[]> cookies = new ArrayList<>();
+        String url = cookieUrl;
+        try {
+            for (int i = 0; i <= MAX_REDIRECTS; i++) {
+                HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
+                try {
+                    conn.setInstanceFollowRedirects(false);// 每一跳的Set-Cookie都需要按各自的URL写入
+                    conn.setConnectTimeout(CONNECT_TIMEOUT);
+                    conn.setReadTimeout(READ_TIMEOUT);
+                    conn.setUseCaches(false);
+                    String userAgent = System.getProperty("http.agent");
+                    if (TextUtil.isNotEmpty(JoyWeb.getUserAgent())) {
+                        userAgent = userAgent + " " + JoyWeb.getUserAgent();
+                    }
+                    conn.setRequestProperty("User-Agent", userAgent);
+                    String cookie = android.webkit.CookieManager.getInstance().getCookie(url);
+                    if (TextUtil.isNotEmpty(cookie)) {
+                        conn.setRequestProperty("Cookie", cookie);
+                    }
+                    int code = conn.getResponseCode();
+                    for (Map.Entry<String, List<String>> header : conn.getHeaderFields().entrySet()) {
+                        if ("Set-Cookie".equalsIgnoreCase(header.getKey())) {
+                            for (String value : header.getValue()) {
+                                cookies.add(new String[]{url, value});
+                            }
+                        }
+                    }
+                    String location = conn.getHeaderField("Location");
+                    if (code < 300 || code >= 400 || TextUtil.isEmpty(location)) {
+                        return code < 400 ? cookies : null;
+                    }
+                    url = new URL(new URL(url), location).toString();
+                } finally {
+                    conn.disconnect();
+                }
+            }
+        } catch (Exception e) {
+            if (LogMgr.DEBUG) {
+                LogMgr.d("core-web", "CookieSeeder fetchCookies # error: " + e);
+            }
+            return null;
+        }
+        return cookies;// 超过最大重定向次数，保留已收集的Cookie
+    }
+
+    @MainThread
+    private static void writeCookies(List<String[]> cookies) {
+        try {
+            android.webkit.CookieManager webkitManager = android.webkit.CookieManager.getInstance();
+            CookieManager x5Manager = CookieManager.getInstance();
+            webkitManager.setAcceptCookie(true);
+            x5Manager.setAcceptCookie(true);
+            for (String[] cookie : cookies) {
+                webkitManager.setCookie(cookie[0], cookie[1]);
+                x5Manager.setCookie(cookie[0], cookie[1]);
+            }
+            if (SDK_INT >= LOLLIPOP) {
+                webkitManager.flush();
+            } else {
+                CookieSyncManager.createInstance(BaseApplication.getContext()).sync();
+            }
+            x5Manager.flush();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static class Waiter implements Callback, Runnable {
+
+        private final Callback mCallback;
+        private boolean mDone;
+
+        Waiter(Callback callback) {
+            mCallback = callback;
+        }
+
+        @Override
+        public void onSeeded(boolean success) {
+            if (!mDone) {
+                mDone = true;
+                sMainHandler.removeCallbacks(this);
+                mCallback.onSeeded(success);
+            }
+        }
+
+        @Override
+        public void run() {// 超时
+            sCallbacks.remove(this);
+            if (LogMgr.DEBUG) {
+                LogMgr.d("core-web", "CookieSeeder await # timeout");
+            }
+            onSeeded(false);
+        }
+    }
+
+    public interface Callback {
+        /**
+         * @param success 是否已成功写入Cookie，失败时也应继续加载页面
+         */
+        @MainThread
+        void onSeeded(boolean success);
+    }
+}
@@ -2,6 +2,8 @@ package com.joy.webview.utils;
 
 import android.support.annotation.Nullable;
 
+import com.joy.utils.TextUtil;
+
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
@@ -40,6 +42,46 @@ public class DocumentParser {
         return getElementByTag(document, tagName, 0);
     }
 
+    @Nullable
+    public static Elements getElementsByTag(IndexedDocument document, String tagName) {
+        if (document != null) {
+            return document.getElementsByTag(tagName);
+        }
+        return null;
+    }
+
+    @Nullable
+    public static Element getElementByTag(IndexedDocument document, String tagName, int index) {
+        if (document != null) {
+            return document.getElementByTag(tagName, index);
+        }
+        return null;
+    }
+
+    @Nullable
+    public static Element getFirstElementByTag(IndexedDocument document, String tagName) {
+        return getElementByTag(document, tagName, 0);
+    }
+
+    public static String getTag(IndexedDocument document, String tagName) {
+        Element element = getFirstElementByTag(document, tagName);
+        if (element != null) {
+            return element.text();
+        }
+        return TEXT_EMPTY;
+    }
+
+    public static String getAttribute(IndexedDocument document, String attrName, String attrValue, String attributeKey) {
+        if (document != null) {
+            return document.getAttribute(attrName, attrValue, attributeKey);
+        }
+        return TEXT_EMPTY;
+    }
+
+    public static String getSelection(IndexedDocument document, String cssQuery, @Nullable String attributeKey) {
+        return getSelection(document == null ? null : document.getDocument(), cssQuery, attributeKey);
+    }
+
     /**
      * eg: <description>希望每一刻大家都有幸运女神的庇护，但是如果你是那不幸的几分之几，也希望多些勇气理性面对困境。</description>
      * String desc = getTag("description");// 希望每一刻大家都有幸运女神的庇护，但是如果你是那不幸的几分之几，也希望多些勇气理性面对困境。
@@ -73,4 +115,27 @@ public class DocumentParser {
         }
         return TEXT_EMPTY;
     }
+
+    /**
+     * eg: <meta property="og:image" content="https://..." />
+     * String image = getSelection("meta[property=og:image]", "content");
+     *
+     * @param document
+     * @param cssQuery
+     * @param attributeKey 为空时取元素的文本
+     * @return
+     */
+    public static String getSelection(Document document, String cssQuery, @Nullable String attributeKey) {
+        if (document != null) {
+            try {
+                Element element = document.select(cssQuery).first();
+                if (element != null) {
+                    return TextUtil.isEmpty(attributeKey) ? element.text() : element.attr(attributeKey);
+                }
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+        return TEXT_EMPTY;
+    }
 }
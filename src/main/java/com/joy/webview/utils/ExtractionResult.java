@@ -0,0 +1,103 @@
+package com.joy.webview.utils;
+
+import android.support.annotation.Nullable;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+
+import static com.joy.utils.TextUtil.TEXT_EMPTY;
+
+/**
+ * {@link ExtractionSpec}的提取结果，也用作按URL缓存的元数据。未记录的片段返回null，调用方据此回退到Document。
+ * 只在主线程中读写。
+ */
+
+public class ExtractionResult {
+
+    private static final String PREFIX_TAG = "t|";
+    private static final String PREFIX_ATTRIBUTE = "a|";
+    private static final String PREFIX_SELECTION = "s|";
+
+    private final Map<String, String> mValues = new HashMap<>();
+
+    public static ExtractionResult fromJson(String json) throws JSONException {
+        ExtractionResult result = new ExtractionResult();
+        JSONObject object = new JSONObject(json);
+        result.readFrom(object.optJSONObject("t"), PREFIX_TAG);
+        result.readFrom(object.optJSONObject("a"), PREFIX_ATTRIBUTE);
+        result.readFrom(object.optJSONObject("s"), PREFIX_SELECTION);
+        return result;
+    }
+
+    private void readFrom(JSONObject object, String prefix) {
+        if (object == null) {
+            return;
+        }
+        Iterator<String> keys = object.keys();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            // 页面中不存在的片段以空字符串记录，与DocumentParser的返回值保持一致
+            mValues.put(prefix + key, object.isNull(key) ? TEXT_EMPTY : object.optString(key));
+        }
+    }
+
+    static String tagKey(String tagName) {
+        return PREFIX_TAG + tagName;
+    }
+
+    static String attributeKey(String attrName, String attrValue, String attributeKey) {
+        return PREFIX_ATTRIBUTE + attrName.trim().toLowerCase(Locale.US) + "|" + attrValue.trim().toLowerCase(Locale.US) + "|" + attributeKey;
+    }
+
+    static String selectionKey(String cssQuery, @Nullable String attributeKey) {
+        return PREFIX_SELECTION + cssQuery + "|" + (attributeKey == null ? TEXT_EMPTY : attributeKey);
+    }
+
+    @Nullable
+    public String getTag(String tagName) {
+        return mValues.get(tagKey(tagName));
+    }
+
+    @Nullable
+    public String getAttribute(String attrName, String attrValue, String attributeKey) {
+        return mValues.get(attributeKey(attrName, attrValue, attributeKey));
+    }
+
+    @Nullable
+    public String getSelection(String cssQuery, @Nullable String attributeKey) {
+        return mValues.get(selectionKey(cssQuery, attributeKey));
+    }
+
+    public void putTag(String tagName, String value) {
+        mValues.put(tagKey(tagName), value);
+    }
+
+    public void putAttribute(String attrName, String attrValue, String attributeKey, String value) {
+        mValues.put(attributeKey(attrName, attrValue, attributeKey), value);
+    }
+
+    public void putSelection(String cssQuery, @Nullable String attributeKey, String value) {
+        mValues.put(selectionKey(cssQuery, attributeKey), value);
+    }
+
+    public void putAll(ExtractionResult result) {
+        mValues.putAll(result.mValues);
+    }
+
+    /**
+     * @return 是否已包含spec声明的全部片段
+     */
+    public boolean covers(ExtractionSpec spec) {
+        for (String key : spec.getKeys()) {
+            if (!mValues.containsKey(key)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
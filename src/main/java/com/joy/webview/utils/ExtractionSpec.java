@@ -0,0 +1,128 @@
+package com.joy.webview.utils;
+
+import android.annotation.SuppressLint;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.joy.utils.TextUtil;
+
+import org.json.JSONArray;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 声明页面加载完成后需要提取的片段，注入的JS只回传这些片段，不再传递和解析整页的HTML。
+ * <pre>
+ * presenter.setExtractionSpec(new ExtractionSpec()
+ *         .tag("description")
+ *         .attribute("name", "description", "content")
+ *         .select("meta[property=og:image]", "content"));
+ * </pre>
+ */
+
+public class ExtractionSpec {
+
+    private final List<String> mTags = new ArrayList<>();
+    private final List<String[]> mAttributes = new ArrayList<>();
+    private final List<String[]> mSelections = new ArrayList<>();
+    private boolean mDocumentRequired;
+
+    /**
+     * 常用的分享元数据：title、description、og:title、og:description、og:image、og:url
+     */
+    public static ExtractionSpec shareMeta() {
+        return new ExtractionSpec()
+                .tag("title")
+                .attribute("name", "description", "content")
+                .attribute("property", "og:title", "content")
+                .attribute("property", "og:description", "content")
+                .attribute("property", "og:image", "content")
+                .attribute("property", "og:url", "content");
+    }
+
+    /**
+     * 对应{@link DocumentParser#getTag}
+     */
+    public ExtractionSpec tag(@NonNull String tagName) {
+        mTags.add(tagName);
+        return this;
+    }
+
+    /**
+     * 对应{@link DocumentParser#getAttribute}
+     */
+    public ExtractionSpec attribute(@NonNull String attrName, @NonNull String attrValue, @NonNull String attributeKey) {
+        mAttributes.add(new String[]{attrName, attrValue, attributeKey});
+        return this;
+    }
+
+    /**
+     * @param cssQuery     CSS选择器，取第一个匹配的元素
+     * @param attributeKey 为空时取元素的文本
+     */
+    public ExtractionSpec select(@NonNull String cssQuery, @Nullable String attributeKey) {
+        mSelections.add(new String[]{cssQuery, attributeKey == null ? TextUtil.TEXT_EMPTY : attributeKey});
+        return this;
+    }
+
+    /**
+     * 是否仍然需要整页的Document（如需调用{@link com.joy.webview.presenter.IPresenter#getDocument()}），默认为false。
+     */
+    public ExtractionSpec requireDocument(boolean required) {
+        mDocumentRequired = required;
+        return this;
+    }
+
+    public boolean isDocumentRequired() {
+        return mDocumentRequired;
+    }
+
+    List<String> getKeys() {
+        List<String> keys = new ArrayList<>(mTags.size() + mAttributes.size() + mSelections.size());
+        for (String tag : mTags) {
+            keys.add(ExtractionResult.tagKey(tag));
+        }
+        for (String[] attr : mAttributes) {
+            keys.add(ExtractionResult.attributeKey(attr[0], attr[1], attr[2]));
+        }
+        for (String[] selection : mSelections) {
+            keys.add(ExtractionResult.selectionKey(selection[0], selection[1]));
+        }
+        return keys;
+    }
+
+    /**
+     * @param sequence 推送序号
+     * @return 注入页面的JS，结果通过htmlSource.receivedFragments回传
+     */
+    @SuppressLint("DefaultLocale")
+    public String toScript(int sequence) {
+        JSONArray tags = new JSONArray();
+        for (String tag : mTags) {
+            tags.put(tag);
+        }
+        JSONArray attributes = new JSONArray();
+        for (String[] attr : mAttributes) {
+            attributes.put(new JSONArray().put(attr[0].trim().toLowerCase(Locale.US)).put(attr[1].trim().toLowerCase(Locale.US)).put(attr[2]));
+        }
+        JSONArray selections = new JSONArray();
+        for (String[] selection : mSelections) {
+            selections.put(new JSONArray().put(selection[0]).put(selection[1]));
+        }
+        String format = "javascript:(function(){" +
+                "function x(e){return e?(e.textContent||'').replace(/\\s+/g,' ').trim():null;}" +
+                "var r={t:{},a:{},s:{}};" +
+                "try{" +
+                "%s.forEach(function(n){r.t[n]=x(document.getElementsByTagName(n)[0]);});" +
+                "%s.forEach(function(q){var l=[],v=null;try{l=document.querySelectorAll('['+q[0]+']');}catch(err){}" +
+                "for(var i=0;i<l.length;i++){if((l[i].getAttribute(q[0])||'').trim().toLowerCase()==q[1]&&l[i].hasAttribute(q[2])){v=l[i].getAttribute(q[2]);break;}}" +
+                "r.a[q.join('|')]=v;});" +
+                "%s.forEach(function(q){var e=null;try{e=document.querySelector(q[0]);}catch(err){}" +
+                "r.s[q[0]+'|'+q[1]]=e?(q[1]?e.getAttribute(q[1]):x(e)):null;});" +
+                "}catch(err){r={t:{},a:{},s:{}};}" +// 出错时也要回调，否则onPageFinished一直等待提取结果
+                "window.htmlSource.receivedFragments(%d,JSON.stringify(r));})();";
+        return String.format(format, tags.toString(), attributes.toString(), selections.toString(), sequence);
+    }
+}
@@ -0,0 +1,56 @@
+package com.joy.webview.utils;
+
+import android.os.Process;
+
+import com.joy.webview.JoyWeb;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 解析HTML的后台线程池，线程数和队列长度由{@link JoyWeb}配置，首次使用时创建。
+ * 队列满时丢弃最早等待的任务，不在提交任务的JavaBridge线程中解析，以免阻塞页面其他的JS调用。
+ * 被丢弃的一般是已被更新的推送取代的解析，其余的由{@link HtmlStreamParser}的超时结束。
+ */
+
+public class HtmlParseExecutor {
+
+    private static volatile ThreadPoolExecutor sExecutor;
+
+    public static void execute(Runnable task) {
+        getExecutor().execute(task);
+    }
+
+    private static ThreadPoolExecutor getExecutor() {
+        if (sExecutor == null) {
+            synchronized (HtmlParseExecutor.class) {
+                if (sExecutor == null) {
+                    int threadCount = JoyWeb.getHtmlParseThreadCount();
+                    ThreadPoolExecutor executor = new ThreadPoolExecutor(threadCount, threadCount,
+                            30, TimeUnit.SECONDS,
+                            new ArrayBlockingQueue<>(JoyWeb.getHtmlParseQueueSize()),
+                            new ParseThreadFactory(),
+                            new ThreadPoolExecutor.DiscardOldestPolicy());
+                    executor.allowCoreThreadTimeOut(true);
+                    sExecutor = executor;
+                }
+            }
+        }
+        return sExecutor;
+    }
+
+    private static class ParseThreadFactory implements ThreadFactory {
+        private final AtomicInteger mCount = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            return new Thread(() -> {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                r.run();
+            }, "core-web-parse-" + mCount.incrementAndGet());
+        }
+    }
+}
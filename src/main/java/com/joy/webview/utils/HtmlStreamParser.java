@@ -0,0 +1,199 @@
+package com.joy.webview.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.MainThread;
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+
+import com.joy.utils.LogMgr;
+
+import org.jsoup.Jsoup;
+
+import static com.joy.utils.TextUtil.TEXT_EMPTY;
+
+/**
+ * 接收页面推送的HTML（整页或分块），在{@link HtmlParseExecutor}中解析并建立索引，完成后在主线程回调。
+ * 按{@link ExtractionSpec}提取的片段同样按序号校验后在主线程回调。
+ * 每次{@link #begin()}都会生成新的序号，{@link #cancel()}会使正在进行的推送和解析失效，序号不一致的结果会被丢弃。
+ * 注入的JS出错或分块丢失时不会有任何回调，超过{@link #TIMEOUT}仍未完成时回调{@link OnTimeoutListener}。
+ */
+
+public class HtmlStreamParser {
+
+    public static final long TIMEOUT = 10 * 1000;// 10s
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final OnParsedListener mListener;
+    private OnExtractedListener mOnExtractedListener;
+    private OnTimeoutListener mOnTimeoutListener;
+    private final Runnable mTimeoutRunnable = this::onTimeout;
+    private volatile int mSequence;
+    private volatile long mLastParseDuration = -1;
+
+    // 以下字段只在JavaBridge线程中访问
+    private StringBuilder mBuffer;
+    private int mBufferSequence;
+    private int mNextIndex;
+
+    public HtmlStreamParser(OnParsedListener listener) {
+        mListener = listener;
+    }
+
+    public void setOnExtractedListener(OnExtractedListener listener) {
+        mOnExtractedListener = listener;
+    }
+
+    public void setOnTimeoutListener(OnTimeoutListener listener) {
+        mOnTimeoutListener = listener;
+    }
+
+    /**
+     * @return 本次推送的序号，需要拼到注入的JS中
+     */
+    @MainThread
+    public int begin() {
+        mMainHandler.removeCallbacks(mTimeoutRunnable);
+        mMainHandler.postDelayed(mTimeoutRunnable, TIMEOUT);
+        return ++mSequence;
+    }
+
+    /**
+     * 新页面开始加载时调用，丢弃上一个页面未完成的推送和解析。
+     */
+    @MainThread
+    public void cancel() {
+        mMainHandler.removeCallbacks(mTimeoutRunnable);
+        mSequence++;
+    }
+
+    @MainThread
+    private void onTimeout() {
+        mSequence++;// 之后迟到的结果也不再回调
+        if (LogMgr.DEBUG) {
+            LogMgr.d("core-web", "HtmlStreamParser onTimeout # sequence: " + mSequence);
+        }
+        if (mOnTimeoutListener != null) {
+            mOnTimeoutListener.onTimeout();
+        }
+    }
+
+    public boolean isCurrent(int sequence) {
+        return sequence == mSequence;
+    }
+
+    /**
+     * @return 最近一次解析的耗时，在{@link OnParsedListener#onParsed}中调用时即为本次解析的耗时
+     */
+    public long getLastParseDuration() {
+        return mLastParseDuration;
+    }
+
+    /**
+     * 整页推送且没有携带序号时，视为当前序号。
+     *
+     * @param html
+     */
+    @WorkerThread
+    public void feed(String html) {
+        parse(mSequence, html);
+    }
+
+    /**
+     * @param sequence 推送序号
+     * @param index    分块的下标
+     * @param count    分块总数
+     * @param chunk    分块内容
+     */
+    @WorkerThread
+    public synchronized void feed(int sequence, int index, int count, String chunk) {
+        if (!isCurrent(sequence)) {
+            mBuffer = null;
+            return;
+        }
+        if (index == 0) {
+            if (count == 1) {// 整页推送，不需要拼接
+                parse(sequence, chunk);
+                return;
+            }
+            mBuffer = new StringBuilder(count * (chunk == null ? 0 : chunk.length()));
+            mBufferSequence = sequence;
+            mNextIndex = 0;
+        }
+        if (mBuffer == null || mBufferSequence != sequence || mNextIndex != index) {
+            mBuffer = null;// 分块缺失或乱序，放弃本次推送
+            return;
+        }
+        mBuffer.append(chunk);
+        mNextIndex++;
+        if (mNextIndex == count) {
+            String html = mBuffer.toString();
+            mBuffer = null;
+            parse(sequence, html);
+        }
+    }
+
+    /**
+     * @param sequence 推送序号
+     * @param json     {@link ExtractionSpec}注入的JS回传的片段
+     */
+    @WorkerThread
+    public void feedFragments(int sequence, String json) {
+        if (!isCurrent(sequence)) {
+            return;
+        }
+        ExtractionResult result;
+        try {
+            result = ExtractionResult.fromJson(json);
+        } catch (Exception e) {
+            e.printStackTrace();
+            result = null;
+        }
+        final ExtractionResult extraction = result;
+        mMainHandler.post(() -> {
+            if (isCurrent(sequence)) {
+                mMainHandler.removeCallbacks(mTimeoutRunnable);
+                if (mOnExtractedListener != null) {
+                    mOnExtractedListener.onExtracted(extraction);
+                }
+            }
+        });
+    }
+
+    private void parse(int sequence, String html) {
+        HtmlParseExecutor.execute(() -> {
+            if (!isCurrent(sequence)) {
+                return;
+            }
+            long start = System.currentTimeMillis();
+            IndexedDocument document = IndexedDocument.build(Jsoup.parse(html == null ? TEXT_EMPTY : html));
+            long cost = System.currentTimeMillis() - start;
+            if (LogMgr.DEBUG) {
+                LogMgr.d("core-web", "HtmlStreamParser parse # sequence: " + sequence + " length: " + (html == null ? 0 : html.length())
+                        + " cost: " + cost + "ms");
+            }
+            mMainHandler.post(() -> {
+                if (isCurrent(sequence)) {
+                    mMainHandler.removeCallbacks(mTimeoutRunnable);
+                    mLastParseDuration = cost;
+                    mListener.onParsed(document);
+                }
+            });
+        });
+    }
+
+    public interface OnParsedListener {
+        @MainThread
+        void onParsed(IndexedDocument document);
+    }
+
+    public interface OnExtractedListener {
+        @MainThread
+        void onExtracted(@Nullable ExtractionResult result);
+    }
+
+    public interface OnTimeoutListener {
+        @MainThread
+        void onTimeout();
+    }
+}
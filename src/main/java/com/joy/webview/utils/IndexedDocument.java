@@ -0,0 +1,98 @@
+package com.joy.webview.utils;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+
+import org.jsoup.nodes.Attribute;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.select.Elements;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import static com.joy.utils.TextUtil.TEXT_EMPTY;
+
+/**
+ * 解析完成后遍历一次Document，建立标签名和属性名/属性值到元素的索引，之后的查找不再遍历整棵树。
+ * 索引中的元素保持文档中的先后顺序，查找结果与{@link Document#getElementsByTag}、{@link Document#getElementsByAttributeValue}一致。
+ */
+
+public class IndexedDocument {
+
+    // 过长的属性值（如style、data-*）不建索引，按值查找时回退到遍历
+    private static final int MAX_INDEXED_VALUE_LENGTH = 128;
+
+    private final Document mDocument;
+    private final Map<String, Elements> mTagIndex = new HashMap<>();
+    private final Map<String, Elements> mAttributeIndex = new HashMap<>();
+
+    @WorkerThread
+    public static IndexedDocument build(@NonNull Document document) {
+        return new IndexedDocument(document);
+    }
+
+    private IndexedDocument(Document document) {
+        mDocument = document;
+        for (Element element : document.getAllElements()) {
+            put(mTagIndex, element.tagName().toLowerCase(Locale.US), element);
+            for (Attribute attribute : element.attributes()) {
+                String value = attribute.getValue().trim();
+                if (value.length() <= MAX_INDEXED_VALUE_LENGTH) {
+                    put(mAttributeIndex, attributeKey(attribute.getKey(), value), element);
+                }
+            }
+        }
+    }
+
+    private static void put(Map<String, Elements> index, String key, Element element) {
+        Elements elements = index.get(key);
+        if (elements == null) {
+            elements = new Elements(1);
+            index.put(key, elements);
+        }
+        elements.add(element);
+    }
+
+    private static String attributeKey(String attrName, String attrValue) {
+        return attrName.trim().toLowerCase(Locale.US) + "=" + attrValue.trim().toLowerCase(Locale.US);
+    }
+
+    public Document getDocument() {
+        return mDocument;
+    }
+
+    @NonNull
+    public Elements getElementsByTag(String tagName) {
+        Elements elements = mTagIndex.get(tagName.trim().toLowerCase(Locale.US));
+        return elements == null ? new Elements() : new Elements(elements);
+    }
+
+    @Nullable
+    public Element getElementByTag(String tagName, int index) {
+        Elements elements = mTagIndex.get(tagName.trim().toLowerCase(Locale.US));
+        return elements != null && index >= 0 && elements.size() > index ? elements.get(index) : null;
+    }
+
+    @NonNull
+    public Elements getElementsByAttributeValue(String attrName, String attrValue) {
+        if (attrValue.trim().length() > MAX_INDEXED_VALUE_LENGTH) {
+            return mDocument.getElementsByAttributeValue(attrName, attrValue);
+        }
+        Elements elements = mAttributeIndex.get(attributeKey(attrName, attrValue));
+        return elements == null ? new Elements() : new Elements(elements);
+    }
+
+    /**
+     * 等同于getElementsByAttributeValue(attrName, attrValue).attr(attributeKey)，但不复制结果集。
+     */
+    public String getAttribute(String attrName, String attrValue, String attributeKey) {
+        if (attrValue.trim().length() > MAX_INDEXED_VALUE_LENGTH) {
+            return mDocument.getElementsByAttributeValue(attrName, attrValue).attr(attributeKey);
+        }
+        Elements elements = mAttributeIndex.get(attributeKey(attrName, attrValue));
+        return elements == null ? TEXT_EMPTY : elements.attr(attributeKey);
+    }
+}
@@ -0,0 +1,112 @@
+package com.joy.webview.utils;
+
+import android.os.SystemClock;
+
+/**
+ * 一次逻辑上的页面导航，重定向链中的各跳都属于同一次导航。
+ * 状态只能按 STARTED → REDIRECTED → COMMITTED → FINISHED/ERROR/TIMEOUT 的方向转换，进入终止状态后不再变化。
+ */
+
+public class Navigation {
+
+    public static final int STATE_STARTED = 0;
+    public static final int STATE_REDIRECTED = 1;
+    public static final int STATE_COMMITTED = 2;
+    public static final int STATE_FINISHED = 3;
+    public static final int STATE_ERROR = 4;
+    public static final int STATE_TIMEOUT = 5;
+
+    private final int mId;
+    private final String mInitialUrl;
+    private final long mStartTime;
+    private String mUrl;
+    private int mState;
+    private int mRedirectCount;
+
+    Navigation(int id, String url) {
+        mId = id;
+        mInitialUrl = url;
+        mUrl = url;
+        mState = STATE_STARTED;
+        mStartTime = SystemClock.elapsedRealtime();
+    }
+
+    public int getId() {
+        return mId;
+    }
+
+    public String getInitialUrl() {
+        return mInitialUrl;
+    }
+
+    /**
+     * @return 重定向后的URL
+     */
+    public String getUrl() {
+        return mUrl;
+    }
+
+    public int getState() {
+        return mState;
+    }
+
+    public int getRedirectCount() {
+        return mRedirectCount;
+    }
+
+    public long getStartTime() {
+        return mStartTime;
+    }
+
+    /**
+     * @return 尚未提交，新的onPageStarted视为重定向
+     */
+    public boolean isPending() {
+        return mState == STATE_STARTED || mState == STATE_REDIRECTED;
+    }
+
+    public boolean isTerminated() {
+        return mState >= STATE_FINISHED;
+    }
+
+    public boolean isFailed() {
+        return mState == STATE_ERROR || mState == STATE_TIMEOUT;
+    }
+
+    boolean redirect(String url) {
+        if (!isPending()) {
+            return false;
+        }
+        mUrl = url;
+        mRedirectCount++;
+        mState = STATE_REDIRECTED;
+        return true;
+    }
+
+    /**
+     * 服务端重定向可能只回调一次onPageStarted，直到onPageFinished才得知最终的URL，此时已经提交，只补记URL，不改变状态。
+     */
+    void redirectAfterCommit(String url) {
+        if (isTerminated() || url.equals(mUrl)) {
+            return;
+        }
+        mUrl = url;
+        mRedirectCount++;
+    }
+
+    /**
+     * @return 状态是否发生了变化
+     */
+    public boolean moveTo(int state) {
+        if (isTerminated() || state == STATE_REDIRECTED || state <= mState) {
+            return false;
+        }
+        mState = state;
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "Navigation{id=" + mId + ", state=" + mState + ", redirects=" + mRedirectCount + ", url=" + mUrl + "}";
+    }
+}
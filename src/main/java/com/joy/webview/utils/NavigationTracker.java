@@ -0,0 +1,74 @@
+package com.joy.webview.utils;
+
+import android.support.annotation.Nullable;
+
+/**
+ * 跟踪当前的{@link Navigation}，只持有一个导航，长时间使用同一个WebView也不会持续占用内存。
+ * 当前导航尚未提交时收到的onPageStarted视为重定向，除非是通过{@link #expect()}声明的主动加载（load/reload/前进/后退）。
+ * 只在主线程中使用。
+ */
+
+public class NavigationTracker {
+
+    private Navigation mCurrent;
+    private int mNextId;
+    private boolean mExpected;
+
+    /**
+     * 主动发起加载前调用，下一次onPageStarted一定开始新的导航。
+     */
+    public void expect() {
+        mExpected = true;
+    }
+
+    /**
+     * @return 开始了新的导航时返回该导航，属于当前导航的重定向时返回null
+     */
+    @Nullable
+    public Navigation onPageStarted(String url) {
+        if (mCurrent != null && mCurrent.isPending() && !mExpected) {
+            mCurrent.redirect(url);
+            return null;
+        }
+        mExpected = false;
+        mCurrent = new Navigation(++mNextId, url);
+        return mCurrent;
+    }
+
+    /**
+     * onPageFinished的URL与当前导航不同时（没有逐跳回调onPageStarted的重定向），以最终的URL更新当前导航。
+     */
+    public void onPageFinished(String url) {
+        if (mCurrent != null) {
+            mCurrent.redirectAfterCommit(url);
+        }
+    }
+
+    /**
+     * @return 当前导航，尚未开始任何导航时返回null
+     */
+    @Nullable
+    public Navigation getCurrent() {
+        return mCurrent;
+    }
+
+    /**
+     * @return 当前导航的id，尚未开始任何导航时返回0
+     */
+    public int getCurrentId() {
+        return mCurrent == null ? 0 : mCurrent.getId();
+    }
+
+    /**
+     * 当前导航转换到指定状态。
+     *
+     * @return 状态是否发生了变化
+     */
+    public boolean moveTo(int state) {
+        return mCurrent != null && mCurrent.moveTo(state);
+    }
+
+    public boolean isFailed() {
+        return mCurrent != null && mCurrent.isFailed();
+    }
+}
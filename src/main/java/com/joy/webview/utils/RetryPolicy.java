@@ -0,0 +1,57 @@
+package com.joy.webview.utils;
+
+import com.joy.webview.JoyWeb;
+
+import java.util.Random;
+
+import static android.webkit.WebViewClient.ERROR_CONNECT;
+import static android.webkit.WebViewClient.ERROR_HOST_LOOKUP;
+import static android.webkit.WebViewClient.ERROR_IO;
+import static android.webkit.WebViewClient.ERROR_TIMEOUT;
+
+/**
+ * 主页面加载失败时的自动重试策略：只重试网络抖动类的错误，重试间隔按指数增长并加入随机抖动，避免多个页面同时重试。
+ * 次数和间隔通过{@link JoyWeb#setRetryMaxAttempts}、{@link JoyWeb#setRetryBaseDelay}、{@link JoyWeb#setRetryMaxDelay}配置。
+ */
+
+public class RetryPolicy {
+
+    private static final Random sRandom = new Random();
+
+    /**
+     * @param errorCode WebViewClient中的错误码，X5内核的错误码与系统内核一致
+     * @return 是否为可能自行恢复的错误
+     */
+    public static boolean isTransient(int errorCode) {
+        switch (errorCode) {
+            case ERROR_TIMEOUT:
+            case ERROR_CONNECT:
+            case ERROR_HOST_LOOKUP:
+            case ERROR_IO:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * @param attempt 已经重试的次数
+     * @return 是否还可以继续重试
+     */
+    public static boolean canRetry(int attempt, int errorCode) {
+        return attempt < JoyWeb.getRetryMaxAttempts() && isTransient(errorCode);
+    }
+
+    /**
+     * @param attempt 已经重试的次数
+     * @return 下一次重试前等待的时长，在[delay/2, delay]之间随机
+     */
+    public static long getDelay(int attempt) {
+        long delay = Math.min(JoyWeb.getRetryBaseDelay() << Math.min(attempt, 16), JoyWeb.getRetryMaxDelay());
+        if (delay <= 1) {
+            return Math.max(delay, 0);
+        }
+        long half = delay / 2;
+        return half + (long) (sRandom.nextDouble() * (delay - half));
+    }
+}
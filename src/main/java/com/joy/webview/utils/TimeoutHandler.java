@@ -2,8 +2,10 @@ package com.joy.webview.utils;
 
 import android.os.Handler;
 import android.os.Message;
+import android.os.SystemClock;
 
 import com.joy.utils.LogMgr;
+import com.joy.webview.JoyWeb;
 import com.joy.webview.presenter.IPresenter;
 
 import java.lang.ref.WeakReference;
@@ -13,17 +15,98 @@ import static com.joy.ui.utils.DimenCons.SCREEN_HEIGHT_ABSOLUTE;
 
 /**
  * Created by Daisw on 2016/11/10.
+ * <p>
+ * {@link JoyWeb#TIMEOUT_FIXED}：开始加载后超过{@link JoyWeb#getTimeoutDuration()}即超时。
+ * {@link JoyWeb#TIMEOUT_ADAPTIVE}：加载进度增长或有资源开始加载时顺延截止时间，
+ * 超过{@link JoyWeb#getTimeoutIdleDuration()}没有任何进展，或总时长超过{@link JoyWeb#getTimeoutMaxDuration()}时超时。
+ * {@link JoyWeb#TIMEOUT_FIRST_VISIBLE}：{@link JoyWeb#getTimeoutDuration()}内没有任何内容显示时超时；
+ * 内容显示后不再显示错误页，超过{@link JoyWeb#getTimeoutBackgroundDuration()}仍未加载完时只停止加载（如慢速的广告等）。
  */
 
 public class TimeoutHandler extends Handler {
 
     public static final int WHAT_TIMEOUT_ERROR = 101;
+    private static final int VISIBLE_PROGRESS = 80;// 没有onPageCommitVisible时，进度达到该值且已有内容高度即视为已显示
     private final WeakReference<IPresenter> mPresenter;
+    private int mNavigationId;
+    private int mMode;
+    private boolean mContentVisible;
+    private long mVisibleTime;
+    private long mStartTime;
+    private long mLastActivityTime;
+    private int mLastProgress;
 
     public TimeoutHandler(IPresenter presenter) {
         mPresenter = new WeakReference<>(presenter);
     }
 
+    /**
+     * 开始为一次导航计时，会取消之前的计时。
+     *
+     * @param navigationId
+     */
+    public void start(int navigationId) {
+        stop();
+        mMode = JoyWeb.getTimeoutMode();
+        mContentVisible = false;
+        mStartTime = mLastActivityTime = SystemClock.uptimeMillis();
+        mLastProgress = 0;
+        mNavigationId = navigationId;
+        sendMessageAtTime(obtainMessage(WHAT_TIMEOUT_ERROR, navigationId, 0), getDeadline());
+    }
+
+    public void stop() {
+        removeMessages(WHAT_TIMEOUT_ERROR);
+    }
+
+    /**
+     * @return 是否可以视为已有内容显示，是时调用方应接着调用{@link #onContentVisible()}
+     */
+    public boolean onProgressChanged(int progress, int contentHeight) {
+        if (progress > mLastProgress) {
+            mLastProgress = progress;
+            mLastActivityTime = SystemClock.uptimeMillis();
+        }
+        return progress >= VISIBLE_PROGRESS && contentHeight > 0;
+    }
+
+    public void onLoadResource() {
+        mLastActivityTime = SystemClock.uptimeMillis();
+    }
+
+    /**
+     * 当前导航已有内容显示，{@link JoyWeb#TIMEOUT_FIRST_VISIBLE}模式下改为后台的截止时间。可以重复调用。
+     *
+     * @return 是否由此切换到了后台的截止时间
+     */
+    public boolean onContentVisible() {
+        if (mMode != JoyWeb.TIMEOUT_FIRST_VISIBLE || mContentVisible || !hasMessages(WHAT_TIMEOUT_ERROR)) {
+            return false;
+        }
+        mContentVisible = true;
+        mVisibleTime = SystemClock.uptimeMillis();
+        if (LogMgr.DEBUG) {
+            LogMgr.d("core-web", "TimeoutHandler onContentVisible # elapsed: " + (mVisibleTime - mStartTime) + "ms");
+        }
+        removeMessages(WHAT_TIMEOUT_ERROR);
+        sendMessageAtTime(obtainMessage(WHAT_TIMEOUT_ERROR, mNavigationId, 0), getDeadline());
+        return true;
+    }
+
+    private long getDeadline() {
+        switch (mMode) {
+            case JoyWeb.TIMEOUT_ADAPTIVE:
+                return Math.min(mLastActivityTime + JoyWeb.getTimeoutIdleDuration(), mStartTime + JoyWeb.getTimeoutMaxDuration());
+            case JoyWeb.TIMEOUT_FIRST_VISIBLE:
+                if (mContentVisible) {
+                    return mVisibleTime + JoyWeb.getTimeoutBackgroundDuration();
+                }
+                // 内容显示前同TIMEOUT_FIXED
+            default:
+                return mStartTime + JoyWeb.getTimeoutDuration();
+        }
+    }
+
     @Override
     public void handleMessage(Message msg) {
         if (LogMgr.DEBUG) {
@@ -34,13 +117,29 @@ public class TimeoutHandler extends Handler {
             if (presenter.isHostFinishing()) {
                 return;
             }
+            if (msg.arg1 != presenter.getNavigationId()) {// 已经开始了新的导航
+                return;
+            }
+            long deadline = getDeadline();
+            if (SystemClock.uptimeMillis() < deadline) {// 期间有进展，顺延
+                sendMessageAtTime(obtainMessage(WHAT_TIMEOUT_ERROR, msg.arg1, 0), deadline);
+                return;
+            }
+            if (mContentVisible) {// 内容已经显示，只停止剩余的加载
+                if (LogMgr.DEBUG) {
+                    LogMgr.d("core-web", "TimeoutHandler handleMessage # stopLoading in background, progress: " + mLastProgress);
+                }
+                presenter.stopLoading();
+                return;
+            }
             // 在ProgressBar视图下，如果当前加载完的内容的高度大于屏幕的高度则跳出方法体（即使超时了依然等待）
             // FIXME: 2016/11/10 当contentHeight>screenHeight时跳出方法提，但是这样的判断可能会存在问题，如contentHeight本身就没screenHeight大又或者其他不确定因素。
             if (presenter.isProgressEnabled() && presenter.getContentHeight() > SCREEN_HEIGHT_ABSOLUTE) {
                 return;
             }
             if (LogMgr.DEBUG) {
-                LogMgr.d("core-web", "TimeoutHandler handleMessage # stopLoading");
+                LogMgr.d("core-web", "TimeoutHandler handleMessage # stopLoading progress: " + mLastProgress
+                        + " elapsed: " + (SystemClock.uptimeMillis() - mStartTime) + "ms");
             }
             presenter.stopLoading();
             presenter.switchErrorView(ERROR_TIMEOUT, "net::ERR_INTERNET_TIMEOUT", presenter.getUrl());
@@ -4,12 +4,20 @@ import android.net.Uri;
 
 import com.joy.utils.TextUtil;
 
+import java.util.Locale;
+
 /**
  * Created by Daisw on 2016/11/9.
  */
 
 public class UriUtils {
 
+    public static final String URL_BLANK = "about:blank";
+
+    public static boolean isBlank(String url) {
+        return URL_BLANK.equals(url);
+    }
+
     public static boolean isEquals(String s1, String s2) {
         return (TextUtil.isEmpty(s1) && TextUtil.isEmpty(s2)) || isEquals(Uri.parse(s1), Uri.parse(s2));
     }
@@ -17,4 +25,35 @@ public class UriUtils {
     public static boolean isEquals(Uri uri1, Uri uri2) {
         return uri1.getScheme().equals(uri2.getScheme()) && uri1.getAuthority().equals(uri2.getAuthority()) && uri1.getPathSegments().equals(uri2.getPathSegments());
     }
+
+    /**
+     * 去掉fragment，scheme和host转为小写，用作缓存的key。
+     *
+     * @param url
+     * @return
+     */
+    public static String normalize(String url) {
+        if (TextUtil.isEmpty(url)) {
+            return url;
+        }
+        try {
+            Uri uri = Uri.parse(url);
+            String scheme = uri.getScheme();
+            String authority = uri.getEncodedAuthority();
+            if (scheme == null || authority == null) {
+                return url;
+            }
+            Uri.Builder builder = uri.buildUpon()
+                    .scheme(scheme.toLowerCase(Locale.US))
+                    .encodedAuthority(authority.toLowerCase(Locale.US))
+                    .fragment(null);
+            String path = uri.getEncodedPath();
+            if (TextUtil.isEmpty(path)) {
+                builder.encodedPath("/");
+            }
+            return builder.build().toString();
+        } catch (Exception e) {
+            return url;
+        }
+    }
 }
@@ -0,0 +1,62 @@
+package com.joy.webview.view;
+
+import android.content.Context;
+import android.support.annotation.Nullable;
+import android.view.MotionEvent;
+
+import com.joy.ui.view.JWebView;
+
+/**
+ * 可回收复用的系统WebView：只把用户触摸引起的滚动回调给监听器，回收后在下一次加载完成时清除历史。
+ */
+
+public class WebKit extends JWebView {
+
+    private OnScrollChangedListener mOnScrollChangedListener;
+    private boolean mTouchTriggered;
+    private boolean mClearHistoryPending;
+
+    public WebKit(Context context) {
+        super(context);
+    }
+
+    @Override
+    protected void onScrollChanged(int scrollX, int scrollY, int oldScrollX, int oldScrollY) {
+        if (mOnScrollChangedListener == null) {
+            super.onScrollChanged(scrollX, scrollY, oldScrollX, oldScrollY);
+        } else if (mTouchTriggered) {
+            mOnScrollChangedListener.onScrollChanged(scrollX, scrollY, oldScrollX, oldScrollY);
+        }
+    }
+
+    @Override
+    public boolean onInterceptTouchEvent(MotionEvent event) {
+        if (event.getAction() == MotionEvent.ACTION_DOWN) {
+            mTouchTriggered = true;
+        }
+        return super.onInterceptTouchEvent(event);
+    }
+
+    public void setOnScrollChangedListener(@Nullable OnScrollChangedListener listener) {
+        mOnScrollChangedListener = listener;
+    }
+
+    /**
+     * 回收时调用，复用后的首个页面加载完成时需要清除回收前残留的历史记录。
+     */
+    public void onRecycled() {
+        mTouchTriggered = false;
+        mOnScrollChangedListener = null;
+        mClearHistoryPending = true;
+    }
+
+    public boolean consumeClearHistoryPending() {
+        boolean pending = mClearHistoryPending;
+        mClearHistoryPending = false;
+        return pending;
+    }
+
+    public interface OnScrollChangedListener {
+        void onScrollChanged(int scrollX, int scrollY, int oldScrollX, int oldScrollY);
+    }
+}
@@ -1,7 +1,9 @@
 package com.joy.webview.view;
 
 import android.content.Context;
+import android.support.annotation.Nullable;
 import android.util.AttributeSet;
+import android.view.MotionEvent;
 
 import com.joy.ui.view.viewpager.VerticalViewPager;
 import com.tencent.smtt.sdk.WebView;
@@ -12,6 +14,11 @@ import com.tencent.smtt.sdk.WebView;
 
 public class WebX5 extends WebView implements VerticalViewPager.Scrollable {
 
+    private OnScrollChangedListener mOnScrollChangedListener;
+    private boolean mTouchTriggered;
+    private boolean mClearHistoryPending;
+    private String mDefaultUserAgent;
+
     public WebX5(Context context) {
         super(context);
     }
@@ -35,4 +42,54 @@ public class WebX5 extends WebView implements VerticalViewPager.Scrollable {
     public boolean canScrollDown() {
         return getWebScrollY() > 0;
     }
+
+    @Override
+    protected void onScrollChanged(int scrollX, int scrollY, int oldScrollX, int oldScrollY) {
+        if (mOnScrollChangedListener == null) {
+            super.onScrollChanged(scrollX, scrollY, oldScrollX, oldScrollY);
+        } else if (mTouchTriggered) {
+            mOnScrollChangedListener.onScrollChanged(scrollX, scrollY, oldScrollX, oldScrollY);
+        }
+    }
+
+    @Override
+    public boolean onInterceptTouchEvent(MotionEvent event) {
+        if (event.getAction() == MotionEvent.ACTION_DOWN) {
+            mTouchTriggered = true;
+        }
+        return super.onInterceptTouchEvent(event);
+    }
+
+    public void setOnScrollChangedListener(@Nullable OnScrollChangedListener listener) {
+        mOnScrollChangedListener = listener;
+    }
+
+    /**
+     * 创建时记录X5内核默认的UserAgent（见WebX5Pool.create），回收时据此还原。
+     */
+    public String getDefaultUserAgent() {
+        if (mDefaultUserAgent == null) {
+            mDefaultUserAgent = getSettings().getUserAgentString();
+        }
+        return mDefaultUserAgent;
+    }
+
+    /**
+     * 回收时调用，复用后的首个页面加载完成时需要清除回收前残留的历史记录。
+     */
+    public void onRecycled() {
+        mTouchTriggered = false;
+        mOnScrollChangedListener = null;
+        mClearHistoryPending = true;
+    }
+
+    public boolean consumeClearHistoryPending() {
+        boolean pending = mClearHistoryPending;
+        mClearHistoryPending = false;
+        return pending;
+    }
+
+    public interface OnScrollChangedListener {
+        void onScrollChanged(int scrollX, int scrollY, int oldScrollX, int oldScrollY);
+    }
 }